@@ -0,0 +1,6 @@
+-- Cart line timestamps, used by the abandoned-cart sweep (CartSweeper) and the cart upserts.
+-- For databases created from an earlier database_setup.sql; safe to run more than once.
+
+ALTER TABLE cart ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_cart_updated_at ON cart(updated_at);
@@ -0,0 +1,7 @@
+-- Optimistic-lock versions of products, orders and cart lines (the entities' @Version fields).
+-- For databases created from an earlier database_setup.sql; safe to run more than once.
+-- Existing rows start at version 0.
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE cart ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
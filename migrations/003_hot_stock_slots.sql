@@ -0,0 +1,15 @@
+-- Split stock counters of hot products (HotStockCounters). products.stock_slots is 0 for a
+-- product whose stock lives in stock_quantity, as every existing product's does.
+-- For databases created from an earlier database_setup.sql; safe to run more than once.
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS stock_slots INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS product_stock_slots (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    slot INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+
+    CONSTRAINT fk_product_stock_slots_product_id FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT unique_product_slot UNIQUE (product_id, slot)
+);
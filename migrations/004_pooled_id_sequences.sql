@@ -0,0 +1,20 @@
+-- Id sequences for pooled allocation. The entities take ids from <table>_id_seq 50 at a time
+-- (@SequenceGenerator allocationSize = 50), and Hibernate refuses to start when a sequence's
+-- increment differs. The BIGSERIAL sequences of an earlier database_setup.sql step by 1.
+-- Each sequence is moved past the table's highest id so no block overlaps existing rows.
+-- Safe to run more than once; run it with the application stopped.
+
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+SELECT setval('users_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM users), false);
+
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
+SELECT setval('products_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM products), false);
+
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+SELECT setval('orders_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM orders), false);
+
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
+SELECT setval('order_items_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM order_items), false);
+
+ALTER SEQUENCE cart_id_seq INCREMENT BY 50;
+SELECT setval('cart_id_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM cart), false);
@@ -0,0 +1,7 @@
+-- Product modification times, behind the catalog pages' Last-Modified and ETag headers.
+-- For databases created from an earlier database_setup.sql; safe to run more than once.
+-- Existing rows start at the time the script runs.
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_products_updated_at ON products(updated_at);
@@ -0,0 +1,5 @@
+-- Keyset pagination indexes for the in-stock catalog listings (see ProductRepository).
+-- For databases created from an earlier database_setup.sql; safe to run more than once.
+
+CREATE INDEX IF NOT EXISTS idx_products_created_id ON products(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_products_price_id ON products(price, id);
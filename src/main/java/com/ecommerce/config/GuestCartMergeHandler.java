@@ -0,0 +1,54 @@
+package com.ecommerce.config;
+
+import com.ecommerce.controller.GuestCartCookie;
+import com.ecommerce.entity.User;
+import com.ecommerce.service.CartService;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Login success handler that moves a guest's cookie cart into the shopper's cart in one batch
+ * and then shows them the cart. Logins without a guest cart go to the dashboard as before.
+ */
+@Component
+public class GuestCartMergeHandler extends SimpleUrlAuthenticationSuccessHandler {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private GuestCartCookie guestCartCookie;
+
+    public GuestCartMergeHandler() {
+        super("/dashboard");
+        setAlwaysUseDefaultTargetUrl(true);
+    }
+
+    @Override
+    public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+                                        Authentication authentication) throws IOException, ServletException {
+        Map<Long, Integer> guestLines = guestCartCookie.read(request);
+        if (!guestLines.isEmpty()) {
+            guestCartCookie.clear(request, response);
+            if (authentication.getPrincipal() instanceof User user && user.getRole() == User.Role.USER) {
+                try {
+                    cartService.mergeGuestCart(user, guestLines);
+                    clearAuthenticationAttributes(request);
+                    getRedirectStrategy().sendRedirect(request, response, "/cart");
+                    return;
+                } catch (RuntimeException e) {
+                    // A cart that cannot be merged must not stand in the way of signing in.
+                }
+            }
+        }
+        super.onAuthenticationSuccess(request, response, authentication);
+    }
+}
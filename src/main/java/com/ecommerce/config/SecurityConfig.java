@@ -4,12 +4,14 @@ import com.ecommerce.service.UserService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.expression.WebExpressionAuthorizationManager;
 
 @Configuration
 @EnableWebSecurity
@@ -29,18 +31,21 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, GuestCartMergeHandler guestCartMergeHandler) throws Exception {
         http
             .authorizeHttpRequests(authz -> authz
-                .requestMatchers("/", "/register", "/login", "/css/**", "/js/**", "/images/**", "/error", "/test/**").permitAll()
+                .requestMatchers("/", "/register", "/login", "/css/**", "/js/**", "/images/**", "/uploads/**", "/error", "/test/**").permitAll()
+                // Guests may browse and keep a cart in a cookie; CartController serves them.
+                .requestMatchers(HttpMethod.GET, "/products", "/products/**", "/api/products/**").permitAll()
+                .requestMatchers("/cart/**").access(new WebExpressionAuthorizationManager("hasRole('USER') or isAnonymous()"))
                 .requestMatchers("/admin/**").hasRole("ADMIN")
-                .requestMatchers("/user/**", "/cart/**", "/orders/**").hasRole("USER")
+                .requestMatchers("/user/**", "/orders/**").hasRole("USER")
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form
                 .loginPage("/login")
                 .loginProcessingUrl("/login")
-                .defaultSuccessUrl("/dashboard", true)
+                .successHandler(guestCartMergeHandler)
                 .failureUrl("/login?error=true")
                 .permitAll()
             )
@@ -3,19 +3,41 @@ package com.ecommerce.controller;
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
+import com.ecommerce.service.CartStore;
+import com.ecommerce.service.CartSummaryCache;
+import com.ecommerce.service.CartSweeper;
+import com.ecommerce.service.CheckoutKeys;
+import com.ecommerce.service.CheckoutPipeline;
+import com.ecommerce.service.HotStockRebalancer;
+import com.ecommerce.service.OptimisticRetry;
 import com.ecommerce.service.OrderService;
+import com.ecommerce.service.ProductExportService;
+import com.ecommerce.service.ProductFileFormat;
+import com.ecommerce.service.ProductImageService;
+import com.ecommerce.service.ProductImportResult;
+import com.ecommerce.service.ProductImportService;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.StockReservations;
 import com.ecommerce.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/admin")
@@ -31,6 +53,42 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ProductCardRenderer productCardRenderer;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartSummaryCache cartSummaryCache;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private CartSweeper cartSweeper;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private HotStockRebalancer hotStockRebalancer;
+
+    @Autowired
+    private CheckoutKeys checkoutKeys;
+
+    @Autowired
+    private CheckoutPipeline checkoutPipeline;
+
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
         List<Product> lowStockProducts = productService.findLowStockProducts(10);
@@ -62,22 +120,52 @@ public class AdminController {
     @PostMapping("/products/add")
     public String addProduct(@Valid @ModelAttribute("product") Product product,
                              BindingResult bindingResult,
+                             @RequestParam(value = "imageFile", required = false) MultipartFile imageFile,
                              RedirectAttributes redirectAttributes) {
 
         if (bindingResult.hasErrors()) {
             return "admin/add-product";
         }
 
+        String uploaded = null;
         try {
+            if (imageFile != null && !imageFile.isEmpty()) {
+                uploaded = productImageService.store(imageFile);
+                product.setImageUrl(uploaded);
+            }
             productService.createProduct(product);
             redirectAttributes.addFlashAttribute("success", "Product added successfully!");
             return "redirect:/admin/products";
         } catch (Exception e) {
+            productImageService.delete(uploaded);
             redirectAttributes.addFlashAttribute("error", "Error adding product: " + e.getMessage());
             return "redirect:/admin/products/add";
         }
     }
 
+    /**
+     * Bulk import of a CSV or JSON-lines request body, streamed straight from the request. The
+     * format comes from {@code ?format=csv|jsonl} or else the Content-Type.
+     */
+    @PostMapping("/products/import")
+    @ResponseBody
+    public ProductImportResult importProducts(@RequestParam(value = "format", required = false) String format,
+                                              HttpServletRequest request) throws IOException {
+        ProductFileFormat importFormat =
+                ProductFileFormat.from(format != null ? format : request.getContentType());
+        return productImportService.importProducts(request.getInputStream(), importFormat);
+    }
+
+    @GetMapping("/products/export")
+    public void exportProducts(@RequestParam(value = "format", defaultValue = "csv") String format,
+                               HttpServletResponse response) throws IOException {
+        ProductFileFormat exportFormat = ProductFileFormat.from(format);
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products-" + LocalDate.now() + "." + exportFormat.getExtension() + "\"");
+        productExportService.export(response.getOutputStream(), exportFormat);
+    }
+
     @GetMapping("/products/edit/{id}")
     public String editProductForm(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes) {
         Product product = productService.findById(id).orElse(null);
@@ -86,25 +174,70 @@ public class AdminController {
             return "redirect:/admin/products";
         }
         model.addAttribute("product", product);
+        model.addAttribute("stockSlots", productService.getHotStockSlots(id));
         return "admin/edit-product";
     }
 
+    @PostMapping("/products/{id}/hot-stock")
+    public String hotStock(@PathVariable Long id,
+                           @RequestParam("slots") int slots,
+                           RedirectAttributes redirectAttributes) {
+        try {
+            if (slots > 1) {
+                productService.enableHotStock(id, slots);
+                redirectAttributes.addFlashAttribute("success", "Stock is now split across " + slots + " counters.");
+            } else {
+                productService.disableHotStock(id);
+                redirectAttributes.addFlashAttribute("success", "Stock is back on the product.");
+            }
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", "Error changing hot stock: " + e.getMessage());
+        }
+        return "redirect:/admin/products/edit/" + id;
+    }
+
     @PostMapping("/products/edit/{id}")
     public String editProduct(@PathVariable Long id,
                               @Valid @ModelAttribute("product") Product product,
                               BindingResult bindingResult,
+                              @RequestParam(value = "imageFile", required = false) MultipartFile imageFile,
+                              @RequestParam(value = "version", required = false) Long version,
+                              @RequestParam(value = "loadedStock", required = false) Integer loadedStock,
                               RedirectAttributes redirectAttributes) {
 
         if (bindingResult.hasErrors()) {
             return "admin/edit-product";
         }
 
+        String uploaded = null;
         try {
-            product.setId(id);
-            productService.updateProduct(product);
+            // The form only carries the editable fields; copy them onto the stored product so
+            // created_at survives and updated_at moves forward.
+            Product existing = productService.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            existing.setName(product.getName());
+            existing.setDescription(product.getDescription());
+            existing.setPrice(product.getPrice());
+            existing.setStockQuantity(product.getStockQuantity());
+            if (imageFile != null && !imageFile.isEmpty()) {
+                uploaded = productImageService.store(imageFile);
+            }
+            existing.setImageUrl(uploaded != null ? uploaded : product.getImageUrl());
+            // The version the form was rendered with, so a sale or another edit since is not overwritten.
+            if (version != null) {
+                existing.setVersion(version);
+            }
+            productService.updateProduct(existing, loadedStock);
             redirectAttributes.addFlashAttribute("success", "Product updated successfully!");
             return "redirect:/admin/products";
+        } catch (OptimisticLockingFailureException e) {
+            // The product was not saved, so nothing refers to the new upload.
+            productImageService.delete(uploaded);
+            redirectAttributes.addFlashAttribute("error",
+                    "The product was changed while you were editing it. Review the current values and save again.");
+            return "redirect:/admin/products/edit/" + id;
         } catch (Exception e) {
+            productImageService.delete(uploaded);
             redirectAttributes.addFlashAttribute("error", "Error updating product: " + e.getMessage());
             return "redirect:/admin/products/edit/" + id;
         }
@@ -158,4 +291,24 @@ public class AdminController {
         model.addAttribute("users", users);
         return "admin/manage-users";
     }
-}
\ No newline at end of file
+
+    @GetMapping("/metrics")
+    @ResponseBody
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("catalogCache", productService.getCatalogCacheStats());
+        metrics.put("productCards", productCardRenderer.getStats());
+        metrics.put("productImport", productImportService.getStats());
+        metrics.put("productExport", productExportService.getStats());
+        metrics.put("productImages", productImageService.getStats());
+        metrics.put("cartStore", cartStore.getStats());
+        metrics.put("cartSummaries", cartSummaryCache.getStats());
+        metrics.put("stockReservations", stockReservations.getStats());
+        metrics.put("cartSweeper", cartSweeper.getStats());
+        metrics.put("optimisticLocking", optimisticRetry.getStats());
+        metrics.put("hotStock", hotStockRebalancer.getStats());
+        metrics.put("checkoutKeys", checkoutKeys.getStats());
+        metrics.put("checkoutPipeline", checkoutPipeline.getStats());
+        return metrics;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.User;
+import com.ecommerce.service.CartChange;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.CartSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON cart API used by the cart page to send several quantity changes in one request instead
+ * of one form post and page render each. POSTs must be {@code application/json}, which a
+ * cross-site form cannot send; that is what stands in for the CSRF token here.
+ */
+@RestController
+@RequestMapping("/api/cart")
+@PreAuthorize("hasRole('USER')")
+public class CartApiController {
+
+    @Autowired
+    private CartService cartService;
+
+    @GetMapping
+    public Map<String, Object> summary(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return body(cartService.getCartSummary(user), List.of());
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> applyChanges(@RequestBody List<CartChange> changes,
+                                                            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        List<Cart> lines;
+        try {
+            lines = cartService.applyChanges(user, changes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok(body(cartService.getCartSummary(user), lines));
+    }
+
+    private static Map<String, Object> body(CartSummary summary, List<Cart> lines) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("quantity", summary.getQuantity());
+        body.put("total", summary.getTotal());
+        body.put("version", summary.getVersion());
+        body.put("lines", lines.stream().map(line -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("productId", line.getProduct().getId());
+            entry.put("quantity", line.getQuantity());
+            entry.put("subtotal", line.getSubtotal());
+            return entry;
+        }).toList());
+        return body;
+    }
+}
@@ -3,7 +3,11 @@ package com.ecommerce.controller;
 import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.User;
 import com.ecommerce.service.CartService;
+import com.ecommerce.service.CartSummary;
+import com.ecommerce.service.CartView;
 import com.ecommerce.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -12,33 +16,56 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Controller
 @RequestMapping("/cart")
-@PreAuthorize("hasRole('USER')")
+@PreAuthorize("hasRole('USER') or isAnonymous()")
 public class CartController {
 
+    /**
+     * Request header sent by the cart script (and htmx) to get the changed line and totals back
+     * instead of a redirect to the whole page.
+     */
+    static final String FRAGMENT_HEADER = "HX-Request";
+
+    static final String CART_UPDATE_VIEW = "fragments/cart-update :: update";
+
     @Autowired
     private CartService cartService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private GuestCartCookie guestCartCookie;
+
     @GetMapping
-    public String viewCart(Authentication authentication, Model model) {
-        User user = userService.findByUsername(authentication.getName()).orElse(null);
-        if (user == null) {
-            return "redirect:/login";
+    public String viewCart(Authentication authentication, Model model, HttpServletRequest request) {
+        if (authentication == null) {
+            Map<Long, Integer> lines = guestCartCookie.read(request);
+            List<Cart> cartItems = cartService.getGuestCartItems(lines);
+            CartSummary summary = CartSummary.of(cartItems, guestVersion(lines));
+            model.addAttribute("cartItems", cartItems);
+            model.addAttribute("cartSummary", summary);
+            model.addAttribute("cartTotal", summary.getTotal());
+            model.addAttribute("cartItemCount", cartItems.size());
+            model.addAttribute("guest", true);
+            return "user/cart";
         }
 
-        List<Cart> cartItems = cartService.getCartItems(user);
-        BigDecimal cartTotal = cartService.getCartTotal(user);
+        // The principal is the shopper's User, so the page costs only the cart query itself.
+        CartView cart = cartService.getCartView((User) authentication.getPrincipal());
 
-        model.addAttribute("cartItems", cartItems);
-        model.addAttribute("cartTotal", cartTotal);
-        model.addAttribute("cartItemCount", cartItems.size());
+        model.addAttribute("cartItems", cart.getLines());
+        model.addAttribute("cartSummary", cart.getSummary());
+        model.addAttribute("cartTotal", cart.getSummary().getTotal());
+        model.addAttribute("cartItemCount", cart.getLines().size());
+        // Sent back with the checkout form, so submitting it twice places one order.
+        model.addAttribute("checkoutKey", UUID.randomUUID().toString());
 
         return "user/cart";
     }
@@ -47,7 +74,25 @@ public class CartController {
     public String addToCart(@RequestParam("productId") Long productId,
                             @RequestParam("quantity") Integer quantity,
                             Authentication authentication,
-                            RedirectAttributes redirectAttributes) {
+                            HttpServletRequest request,
+                            HttpServletResponse response,
+                            RedirectAttributes redirectAttributes,
+                            Model model) {
+        if (authentication == null) {
+            Map<Long, Integer> lines = changeGuestCart(request, response, redirectAttributes,
+                    "Product added to cart successfully!", guestLines -> {
+                if (quantity == null || quantity < 1) {
+                    throw new RuntimeException("Quantity must be at least 1");
+                }
+                int newQuantity = guestLines.getOrDefault(productId, 0) + quantity;
+                cartService.checkGuestQuantity(productId, newQuantity);
+                guestLines.put(productId, Math.min(newQuantity, GuestCartCookie.MAX_QUANTITY));
+            });
+            if (isFragmentRequest(request)) {
+                return guestCartUpdate(productId, lines, redirectAttributes, model, response);
+            }
+            return "redirect:/products/" + productId;
+        }
 
         User user = userService.findByUsername(authentication.getName()).orElse(null);
         if (user == null) {
@@ -61,55 +106,166 @@ public class CartController {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
 
+        if (isFragmentRequest(request)) {
+            return cartUpdate(productId, user, redirectAttributes, model, response);
+        }
         return "redirect:/products/" + productId;
     }
 
-    @PostMapping("/remove/{cartId}")
-    public String removeFromCart(@PathVariable Long cartId, RedirectAttributes redirectAttributes) {
+    @PostMapping("/remove/{productId}")
+    public String removeFromCart(@PathVariable Long productId,
+                                 Authentication authentication,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response,
+                                 RedirectAttributes redirectAttributes,
+                                 Model model) {
+        if (authentication == null) {
+            Map<Long, Integer> lines = changeGuestCart(request, response, redirectAttributes,
+                    "Item removed from cart!", guestLines -> guestLines.remove(productId));
+            if (isFragmentRequest(request)) {
+                return guestCartUpdate(productId, lines, redirectAttributes, model, response);
+            }
+            return "redirect:/cart";
+        }
+        User user = userService.findByUsername(authentication.getName()).orElse(null);
+        if (user == null) {
+            return "redirect:/login";
+        }
+
         try {
-            cartService.removeFromCart(cartId);
+            cartService.removeFromCart(user, productId);
             redirectAttributes.addFlashAttribute("success", "Item removed from cart!");
         } catch (RuntimeException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
+        if (isFragmentRequest(request)) {
+            return cartUpdate(productId, user, redirectAttributes, model, response);
+        }
         return "redirect:/cart";
     }
 
-    @PostMapping("/update/{cartId}")
-    public String updateQuantity(@PathVariable Long cartId,
+    @PostMapping("/update/{productId}")
+    public String updateQuantity(@PathVariable Long productId,
                                  @RequestParam("quantity") Integer quantity,
-                                 RedirectAttributes redirectAttributes) {
+                                 Authentication authentication,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response,
+                                 RedirectAttributes redirectAttributes,
+                                 Model model) {
+        if (authentication == null) {
+            Map<Long, Integer> lines = changeGuestCart(request, response, redirectAttributes,
+                    "Cart updated successfully!", guestLines -> {
+                if (quantity <= 0) {
+                    guestLines.remove(productId);
+                    return;
+                }
+                guestLine(guestLines, productId);
+                cartService.checkGuestQuantity(productId, quantity);
+                guestLines.put(productId, Math.min(quantity, GuestCartCookie.MAX_QUANTITY));
+            });
+            if (isFragmentRequest(request)) {
+                return guestCartUpdate(productId, lines, redirectAttributes, model, response);
+            }
+            return "redirect:/cart";
+        }
+        User user = userService.findByUsername(authentication.getName()).orElse(null);
+        if (user == null) {
+            return "redirect:/login";
+        }
+
         try {
-            cartService.updateQuantity(cartId, quantity);
+            cartService.updateQuantity(user, productId, quantity);
             redirectAttributes.addFlashAttribute("success", "Cart updated successfully!");
         } catch (RuntimeException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
+        if (isFragmentRequest(request)) {
+            return cartUpdate(productId, user, redirectAttributes, model, response);
+        }
         return "redirect:/cart";
     }
 
-    @PostMapping("/increase/{cartId}")
-    public String increaseQuantity(@PathVariable Long cartId, RedirectAttributes redirectAttributes) {
+    @PostMapping("/increase/{productId}")
+    public String increaseQuantity(@PathVariable Long productId,
+                                   Authentication authentication,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response,
+                                   RedirectAttributes redirectAttributes,
+                                   Model model) {
+        if (authentication == null) {
+            Map<Long, Integer> lines = changeGuestCart(request, response, redirectAttributes, null, guestLines -> {
+                int newQuantity = guestLine(guestLines, productId) + 1;
+                cartService.checkGuestQuantity(productId, newQuantity);
+                guestLines.put(productId, Math.min(newQuantity, GuestCartCookie.MAX_QUANTITY));
+            });
+            if (isFragmentRequest(request)) {
+                return guestCartUpdate(productId, lines, redirectAttributes, model, response);
+            }
+            return "redirect:/cart";
+        }
+        User user = userService.findByUsername(authentication.getName()).orElse(null);
+        if (user == null) {
+            return "redirect:/login";
+        }
+
         try {
-            cartService.increaseQuantity(cartId);
+            cartService.increaseQuantity(user, productId);
         } catch (RuntimeException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
+        if (isFragmentRequest(request)) {
+            return cartUpdate(productId, user, redirectAttributes, model, response);
+        }
         return "redirect:/cart";
     }
 
-    @PostMapping("/decrease/{cartId}")
-    public String decreaseQuantity(@PathVariable Long cartId, RedirectAttributes redirectAttributes) {
+    @PostMapping("/decrease/{productId}")
+    public String decreaseQuantity(@PathVariable Long productId,
+                                   Authentication authentication,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response,
+                                   RedirectAttributes redirectAttributes,
+                                   Model model) {
+        if (authentication == null) {
+            Map<Long, Integer> lines = changeGuestCart(request, response, redirectAttributes, null, guestLines -> {
+                int newQuantity = guestLine(guestLines, productId) - 1;
+                if (newQuantity <= 0) {
+                    guestLines.remove(productId);
+                } else {
+                    guestLines.put(productId, newQuantity);
+                }
+            });
+            if (isFragmentRequest(request)) {
+                return guestCartUpdate(productId, lines, redirectAttributes, model, response);
+            }
+            return "redirect:/cart";
+        }
+        User user = userService.findByUsername(authentication.getName()).orElse(null);
+        if (user == null) {
+            return "redirect:/login";
+        }
+
         try {
-            cartService.decreaseQuantity(cartId);
+            cartService.decreaseQuantity(user, productId);
         } catch (RuntimeException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
         }
+        if (isFragmentRequest(request)) {
+            return cartUpdate(productId, user, redirectAttributes, model, response);
+        }
         return "redirect:/cart";
     }
 
     @PostMapping("/clear")
-    public String clearCart(Authentication authentication, RedirectAttributes redirectAttributes) {
+    public String clearCart(Authentication authentication,
+                            HttpServletRequest request,
+                            HttpServletResponse response,
+                            RedirectAttributes redirectAttributes) {
+        if (authentication == null) {
+            guestCartCookie.clear(request, response);
+            redirectAttributes.addFlashAttribute("success", "Cart cleared successfully!");
+            return "redirect:/cart";
+        }
         User user = userService.findByUsername(authentication.getName()).orElse(null);
         if (user == null) {
             return "redirect:/login";
@@ -119,4 +275,77 @@ public class CartController {
         redirectAttributes.addFlashAttribute("success", "Cart cleared successfully!");
         return "redirect:/cart";
     }
-}
\ No newline at end of file
+
+    /**
+     * Applies a change to the guest's cart cookie and returns the cart as it now is. Nothing is
+     * stored on the server.
+     */
+    private Map<Long, Integer> changeGuestCart(HttpServletRequest request, HttpServletResponse response,
+                                               RedirectAttributes redirectAttributes, String success,
+                                               Consumer<Map<Long, Integer>> change) {
+        Map<Long, Integer> lines = guestCartCookie.read(request);
+        try {
+            change.accept(lines);
+            guestCartCookie.write(request, response, lines);
+            if (success != null) {
+                redirectAttributes.addFlashAttribute("success", success);
+            }
+            return lines;
+        } catch (RuntimeException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return guestCartCookie.read(request);
+        }
+    }
+
+    static boolean isFragmentRequest(HttpServletRequest request) {
+        return "true".equals(request.getHeader(FRAGMENT_HEADER));
+    }
+
+    private String cartUpdate(Long productId, User user, RedirectAttributes redirectAttributes,
+                              Model model, HttpServletResponse response) {
+        CartView cart = cartService.getCartView(user);
+        return cartUpdate(productId, cart.getLines(), cart.getSummary(), false, redirectAttributes, model, response);
+    }
+
+    private String guestCartUpdate(Long productId, Map<Long, Integer> lines, RedirectAttributes redirectAttributes,
+                                   Model model, HttpServletResponse response) {
+        List<Cart> cartItems = cartService.getGuestCartItems(lines);
+        CartSummary summary = CartSummary.of(cartItems, guestVersion(lines));
+        return cartUpdate(productId, cartItems, summary, true, redirectAttributes, model, response);
+    }
+
+    /**
+     * Renders only the changed cart line (absent once it is removed) and the order summary.
+     * The message that would have been flashed to the next page goes in the fragment instead,
+     * and a failed change answers 400 with the cart as it still is.
+     */
+    private String cartUpdate(Long productId, List<Cart> cartItems, CartSummary summary, boolean guest,
+                              RedirectAttributes redirectAttributes, Model model, HttpServletResponse response) {
+        model.addAllAttributes(redirectAttributes.getFlashAttributes());
+        model.addAttribute("productId", productId);
+        model.addAttribute("line", cartItems.stream()
+                .filter(item -> item.getProduct().getId().equals(productId))
+                .findFirst()
+                .orElse(null));
+        model.addAttribute("cartSummary", summary);
+        model.addAttribute("cartTotal", summary.getTotal());
+        model.addAttribute("cartItemCount", cartItems.size());
+        model.addAttribute("guest", guest);
+        if (model.containsAttribute("error")) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        }
+        return CART_UPDATE_VIEW;
+    }
+
+    private static int guestLine(Map<Long, Integer> lines, Long productId) {
+        Integer quantity = lines.get(productId);
+        if (quantity == null) {
+            throw new RuntimeException("Cart item not found");
+        }
+        return quantity;
+    }
+
+    static long guestVersion(Map<Long, Integer> lines) {
+        return Integer.toUnsignedLong(lines.toString().hashCode());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.User;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.CartSummary;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+
+import java.util.Map;
+
+/**
+ * Exposes the shopper's {@link CartSummary} as {@code cartSummary} to the storefront pages for
+ * the navbar badge. For a signed-in shopper the principal already is the {@link User} and the
+ * summary is cached; a guest's comes from their cart cookie. Either way this normally costs no
+ * query. The cart page sets it from its own query instead.
+ */
+@ControllerAdvice(assignableTypes = {ProductController.class, OrderController.class})
+public class CartSummaryAdvice {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private GuestCartCookie guestCartCookie;
+
+    @ModelAttribute("cartSummary")
+    public CartSummary cartSummary(Authentication authentication, HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        if (authentication == null) {
+            Map<Long, Integer> lines = guestCartCookie.read(request);
+            return lines.isEmpty() ? null
+                    : CartSummary.of(cartService.getGuestCartItems(lines), CartController.guestVersion(lines));
+        }
+        if (!(authentication.getPrincipal() instanceof User user)
+                || authentication.getAuthorities().stream().noneMatch(a -> "ROLE_USER".equals(a.getAuthority()))) {
+            return null;
+        }
+        return cartService.getCartSummary(user);
+    }
+}
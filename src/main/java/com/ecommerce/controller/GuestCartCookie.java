@@ -0,0 +1,169 @@
+package com.ecommerce.controller;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A signed-in shopper's cart lives in the {@code cart} table; a guest's lives entirely in this
+ * cookie, so anonymous browsing never writes to the database. The value is the lines as
+ * varints (product id, quantity), Base64url-encoded, followed by a truncated HMAC-SHA256 of
+ * them. A cookie that fails the check is treated as an empty cart.
+ *
+ * <p>The key comes from {@code app.cart.guest.secret}. Without one a random key is used, which
+ * empties guest carts on restart and does not work across several instances.
+ */
+@Component
+public class GuestCartCookie {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestCartCookie.class);
+
+    static final String NAME = "GUEST_CART";
+    static final int MAX_LINES = 50;
+    static final int MAX_QUANTITY = 999;
+
+    private static final byte FORMAT = 1;
+    private static final int SIGNATURE_BYTES = 16;
+    private static final Duration MAX_AGE = Duration.ofDays(30);
+
+    private final SecretKeySpec key;
+
+    public GuestCartCookie(@Value("${app.cart.guest.secret:}") String secret) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("app.cart.guest.secret is not set; guest carts will not survive a restart");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+    }
+
+    /**
+     * The guest's lines, product id to quantity, in the order they were added.
+     */
+    public Map<Long, Integer> read(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (NAME.equals(cookie.getName())) {
+                    return decode(cookie.getValue());
+                }
+            }
+        }
+        return new LinkedHashMap<>();
+    }
+
+    public void write(HttpServletRequest request, HttpServletResponse response, Map<Long, Integer> lines) {
+        String value = lines.isEmpty() ? "" : encode(lines);
+        ResponseCookie cookie = ResponseCookie.from(NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .maxAge(lines.isEmpty() ? Duration.ZERO : MAX_AGE)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    public void clear(HttpServletRequest request, HttpServletResponse response) {
+        write(request, response, Collections.emptyMap());
+    }
+
+    String encode(Map<Long, Integer> lines) {
+        if (lines.size() > MAX_LINES) {
+            throw new RuntimeException("A guest cart holds at most " + MAX_LINES + " products");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT);
+        lines.forEach((productId, quantity) -> {
+            writeVarLong(out, productId);
+            writeVarLong(out, quantity);
+        });
+        byte[] payload = out.toByteArray();
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        return base64.encodeToString(payload) + "." + base64.encodeToString(sign(payload));
+    }
+
+    Map<Long, Integer> decode(String value) {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        int dot = value != null ? value.indexOf('.') : -1;
+        if (dot < 0) {
+            return lines;
+        }
+        try {
+            Base64.Decoder base64 = Base64.getUrlDecoder();
+            byte[] payload = base64.decode(value.substring(0, dot));
+            if (!MessageDigest.isEqual(sign(payload), base64.decode(value.substring(dot + 1)))
+                    || payload.length == 0 || payload[0] != FORMAT) {
+                return lines;
+            }
+            ByteBuffer in = ByteBuffer.wrap(payload, 1, payload.length - 1);
+            while (in.hasRemaining() && lines.size() < MAX_LINES) {
+                long productId = readVarLong(in);
+                long quantity = readVarLong(in);
+                if (quantity > 0 && quantity <= MAX_QUANTITY) {
+                    lines.put(productId, (int) quantity);
+                }
+            }
+            return lines;
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] full = mac.doFinal(payload);
+            byte[] truncated = new byte[SIGNATURE_BYTES];
+            System.arraycopy(full, 0, truncated, 0, SIGNATURE_BYTES);
+            return truncated;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed guest cart");
+    }
+}
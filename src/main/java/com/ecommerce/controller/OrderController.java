@@ -2,6 +2,8 @@ package com.ecommerce.controller;
 
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.User;
+import com.ecommerce.service.CheckoutKeys;
+import com.ecommerce.service.CheckoutPipeline;
 import com.ecommerce.service.OrderService;
 import com.ecommerce.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 @RequestMapping("/orders")
@@ -25,6 +28,12 @@ public class OrderController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CheckoutPipeline checkoutPipeline;
+
+    @Autowired
+    private CheckoutKeys checkoutKeys;
+
     @GetMapping
     public String viewOrders(Authentication authentication, Model model) {
         User user = userService.findByUsername(authentication.getName()).orElse(null);
@@ -74,7 +83,9 @@ public class OrderController {
     }
 
     @PostMapping("/create")
-    public String createOrder(Authentication authentication, RedirectAttributes redirectAttributes) {
+    public String createOrder(@RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
+                              Authentication authentication, RedirectAttributes redirectAttributes) {
         System.out.println("DEBUG: CreateOrder called");
 
         User user = userService.findByUsername(authentication.getName()).orElse(null);
@@ -85,8 +96,14 @@ public class OrderController {
 
         System.out.println("DEBUG: Creating order for user: " + user.getUsername());
 
+        // The cart page's form carries a key; scripted clients may send the header instead.
+        String key = idempotencyKey != null ? idempotencyKey : idempotencyHeader;
         try {
-            Order order = orderService.createOrderFromCart(user);
+            if (checkoutPipeline.isEnabled()) {
+                redirectAttributes.addAttribute("ticket", checkoutPipeline.submit(user, key));
+                return "redirect:/orders/pending";
+            }
+            Order order = orderService.createOrderFromCart(user, key);
             System.out.println("DEBUG: Order created successfully with ID: " + order.getId());
             redirectAttributes.addFlashAttribute("success", "Order placed successfully! Order ID: " + order.getId());
             String redirectUrl = "redirect:/orders/" + order.getId();
@@ -100,6 +117,39 @@ public class OrderController {
         }
     }
 
+    /**
+     * Where a queued checkout waits for its order: refreshes itself until the order is placed,
+     * then goes on to it, or back to the cart with the reason it could not be placed.
+     */
+    @GetMapping("/pending")
+    public String pendingOrder(@RequestParam("ticket") String ticket,
+            Authentication authentication,
+            Model model,
+            RedirectAttributes redirectAttributes) {
+        User user = userService.findByUsername(authentication.getName()).orElse(null);
+        if (user == null) {
+            return "redirect:/login";
+        }
+
+        CompletableFuture<Long> outcome = checkoutKeys.find(user.getId(), ticket);
+        if (outcome == null) {
+            redirectAttributes.addFlashAttribute("error", "Order not found!");
+            return "redirect:/orders";
+        }
+        if (!outcome.isDone()) {
+            model.addAttribute("ticket", ticket);
+            return "user/order-pending";
+        }
+        try {
+            long orderId = checkoutKeys.await(outcome);
+            redirectAttributes.addFlashAttribute("success", "Order placed successfully! Order ID: " + orderId);
+            return "redirect:/orders/" + orderId;
+        } catch (RuntimeException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/cart";
+        }
+    }
+
     @PostMapping("/{id}/cancel")
     public String cancelOrder(@PathVariable Long id,
             Authentication authentication,
@@ -0,0 +1,144 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.service.ProductImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders the product card fragments used by the listing pages and caches the HTML per product
+ * version and viewer type, so a listing only re-renders the cards whose products changed.
+ * Templates call it as {@code ${@productCardRenderer.render('card', product)}}.
+ */
+@Component("productCardRenderer")
+public class ProductCardRenderer {
+
+    private static final String TEMPLATE = "fragments/product-card";
+    private static final Set<String> FRAGMENTS = Set.of("card", "featured");
+    private static final String CSRF_PLACEHOLDER = "{{csrf}}";
+    private static final int MAX_ENTRIES = 20_000;
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private volatile JakartaServletWebApplication application;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    public String render(String fragment, Product product) {
+        if (!FRAGMENTS.contains(fragment)) {
+            throw new RuntimeException("Unknown product card fragment: " + fragment);
+        }
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        HttpServletRequest request = attributes.getRequest();
+        // Shoppers and guests (who keep a cookie cart) can buy; other signed-in roles cannot.
+        boolean canPurchase = request.isUserInRole("USER") || request.getUserPrincipal() == null;
+
+        String key = fragment + ":" + product.getId() + (canPurchase ? ":buyer" : ":guest");
+        List<Object> version = versionOf(product);
+        Entry entry = cache.get(key);
+
+        String html;
+        if (entry != null && entry.version.equals(version)) {
+            hits.incrementAndGet();
+            html = entry.html;
+        } else {
+            misses.incrementAndGet();
+            long start = System.nanoTime();
+            html = renderFragment(fragment, product, canPurchase, request, attributes.getResponse());
+            renderNanos.addAndGet(System.nanoTime() - start);
+            store(key, new Entry(version, html));
+        }
+
+        return canPurchase ? html.replace(CSRF_PLACEHOLDER, csrfToken(request)) : html;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        double averageRenderMillis = missCount == 0 ? 0.0 : renderNanos.get() / 1_000_000.0 / missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("averageRenderMillis", averageRenderMillis);
+        stats.put("renderMillisSaved", averageRenderMillis * hitCount);
+        return stats;
+    }
+
+    // Everything the card displays; any change here means the cached HTML is stale.
+    private static List<Object> versionOf(Product product) {
+        return Arrays.asList(product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity(), product.getImageUrl());
+    }
+
+    private String renderFragment(String fragment, Product product, boolean canPurchase,
+                                  HttpServletRequest request, HttpServletResponse response) {
+        if (application == null) {
+            application = JakartaServletWebApplication.buildApplication(request.getServletContext());
+        }
+        WebContext context = new WebContext(application.buildExchange(request, response), request.getLocale());
+        context.setVariable("product", product);
+        context.setVariable("canPurchase", canPurchase);
+        context.setVariable("cardImageUrl", productImageService.url(product.getImageUrl(), "card"));
+        return templateEngine.process(TEMPLATE, Set.of(fragment), context);
+    }
+
+    private void store(String key, Entry entry) {
+        if (cache.size() >= MAX_ENTRIES) {
+            Iterator<String> keys = cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        cache.put(key, entry);
+    }
+
+    private static String csrfToken(HttpServletRequest request) {
+        CsrfToken token = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+        return token != null ? HtmlUtils.htmlEscape(token.getToken()) : "";
+    }
+
+    private static final class Entry {
+
+        private final List<Object> version;
+        private final String html;
+
+        Entry(List<Object> version, String html) {
+            this.version = version;
+            this.html = html;
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package com.ecommerce.controller;
 
 import com.ecommerce.entity.Product;
+import com.ecommerce.service.CartSummary;
+import com.ecommerce.service.CatalogQuery;
+import com.ecommerce.service.ProductPage;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.ProductSuggestIndex;
+import com.ecommerce.service.StockReservations;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 public class ProductController {
@@ -17,22 +31,37 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private StockReservations stockReservations;
+
     @GetMapping("/user/home")
-    public String home(Model model) {
-        List<Product> products = productService.findAllInStock();
-        model.addAttribute("products", products);
+    public String home(CatalogQuery query, Model model, ServletWebRequest webRequest) {
+        if (notModified(webRequest, model, "home-" + productService.getCatalogVersion(), null)) {
+            return null;
+        }
+        ProductPage page = productService.findInStockPage(query);
+        model.addAttribute("products", page.getItems());
+        model.addAttribute("page", page);
         return "user/home";
     }
 
     @GetMapping("/products")
-    public String listProducts(@RequestParam(value = "search", required = false) String search, Model model) {
+    public String listProducts(@RequestParam(value = "search", required = false) String search,
+                               CatalogQuery query,
+                               Model model,
+                               ServletWebRequest webRequest) {
+        if (notModified(webRequest, model, "products-" + productService.getCatalogVersion(), null)) {
+            return null;
+        }
         List<Product> products;
 
         if (search != null && !search.trim().isEmpty()) {
             products = productService.searchProducts(search.trim());
             model.addAttribute("searchTerm", search);
         } else {
-            products = productService.findAllInStock();
+            ProductPage page = productService.findCatalogPage(query);
+            products = page.getItems();
+            model.addAttribute("page", page);
         }
 
         model.addAttribute("products", products);
@@ -40,12 +69,63 @@ public class ProductController {
     }
 
     @GetMapping("/products/{id}")
-    public String viewProduct(@PathVariable Long id, Model model) {
+    public String viewProduct(@PathVariable Long id, Model model, ServletWebRequest webRequest) {
+        LocalDateTime lastModified = productService.findLastModified(id).orElse(null);
+        int held = stockReservations.heldUnits(id);
+        if (lastModified != null && notModified(webRequest, model,
+                "product-" + id + "-" + toEpochMicros(lastModified) + "-" + held, lastModified)) {
+            return null;
+        }
         Product product = productService.findById(id).orElse(null);
         if (product == null) {
             return "redirect:/products";
         }
         model.addAttribute("product", product);
+        model.addAttribute("availableToSell", Math.max(0, product.getStockQuantity() - held));
         return "user/product-detail";
     }
-}
\ No newline at end of file
+
+    @GetMapping("/api/products/suggest")
+    @ResponseBody
+    public List<ProductSuggestIndex.Suggestion> suggest(@RequestParam("q") String query,
+                                                        @RequestParam(value = "limit", defaultValue = "8") int limit) {
+        return productService.suggest(query, limit);
+    }
+
+    /**
+     * Answers a conditional GET from the version alone, before any entity is loaded or template
+     * rendered. The pages embed the viewer's name and CSRF token, so the ETag is also tied to the
+     * session and to the version of the cart badge; and a pending flash message always forces a
+     * full render. Listings pass no Last-Modified, since deleting a product would not move it forward.
+     */
+    private boolean notModified(ServletWebRequest webRequest, Model model, String version, LocalDateTime lastModified) {
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(webRequest.getRequest());
+        if (flash != null && !flash.isEmpty()) {
+            return false;
+        }
+
+        HttpSession session = webRequest.getRequest().getSession(false);
+        String viewer = session != null ? Integer.toHexString(session.getId().hashCode()) : "anonymous";
+        if (model.getAttribute("cartSummary") instanceof CartSummary cart) {
+            viewer += "-" + cart.getVersion();
+        }
+        String etag = "W/\"" + version + "-" + viewer + "\"";
+        return lastModified != null
+                ? webRequest.checkNotModified(etag, toEpochMillis(lastModified))
+                : webRequest.checkNotModified(etag);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Finer than Last-Modified's whole seconds, so two edits in the same second get distinct ETags.
+    private static long toEpochMicros(LocalDateTime time) {
+        return toEpochMillis(time) * 1_000 + time.getNano() / 1_000 % 1_000;
+    }
+}
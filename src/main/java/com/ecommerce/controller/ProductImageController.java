@@ -0,0 +1,68 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.service.ProductImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+@Controller
+public class ProductImageController {
+
+    // Tomcat's sendfile contract: the connector copies the file to the socket itself
+    // (FileChannel.transferTo) after the servlet returns, without it passing through the heap.
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    /**
+     * Serves uploaded product images. The URLs are content-addressed, so a generated variant is
+     * cacheable forever; while a variant is still being generated the original is served with a
+     * short lifetime instead, so browsers pick up the small version once it exists.
+     */
+    @GetMapping("/uploads/products/{key}/{fileName:.+}")
+    public void serve(@PathVariable String key,
+                      @PathVariable String fileName,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        ProductImageService.ImageFile image = productImageService.resolve(key, fileName);
+        if (image == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, image.isExact() ? IMMUTABLE : "public, max-age=60");
+        long lastModified = Files.getLastModifiedTime(image.getPath()).toMillis();
+        if (image.isExact() && new ServletWebRequest(request, response).checkNotModified(lastModified)) {
+            return;
+        }
+
+        long length = Files.size(image.getPath());
+        response.setContentType(image.getContentType());
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, image.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+        } else {
+            Files.copy(image.getPath(), response.getOutputStream());
+        }
+    }
+}
@@ -5,13 +5,17 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart")
+@Table(name = "cart", uniqueConstraints = @UniqueConstraint(name = "unique_user_product",
+        columnNames = {"user_id", "product_id"}),
+        indexes = @Index(name = "idx_cart_updated_at", columnList = "updated_at"))
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_id_seq")
+    @SequenceGenerator(name = "cart_id_seq", sequenceName = "cart_id_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -29,6 +33,23 @@ public class Cart {
     @Column(nullable = false)
     private Integer quantity;
 
+    /**
+     * When the line was last added to or changed; the abandoned-cart sweeper goes by this. The
+     * native upserts that bypass the entity set it themselves.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    protected void onChange() {
+        updatedAt = LocalDateTime.now();
+    }
+
     public BigDecimal getSubtotal() {
         return product.getPrice().multiply(BigDecimal.valueOf(quantity));
     }
@@ -76,4 +97,20 @@ public class Cart {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
-}
\ No newline at end of file
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
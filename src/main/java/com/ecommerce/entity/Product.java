@@ -8,13 +8,15 @@ import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "products")
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_id_seq")
+    @SequenceGenerator(name = "products_id_seq", sequenceName = "products_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Product name is required")
@@ -40,9 +42,36 @@ public class Product {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    /**
+     * How many {@code product_stock_slots} rows the stock is split across while the product is
+     * hot, 0 otherwise. Only written with SQL by {@code HotStockCounters}; checkout's guarded
+     * decrement of {@code stock_quantity} leaves the row alone while it is set.
+     */
+    @Column(name = "stock_slots", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0")
+    private int stockSlots;
+
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Match the column's microsecond precision so keyset cursors compare equal to stored values
+        createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        updatedAt = createdAt;
+    }
+
+    /**
+     * Records a change to the product. Called explicitly by the write paths rather than from a
+     * {@code @PreUpdate} hook so the new value is visible before the flush, when the catalog
+     * cache takes its snapshot.
+     */
+    public void touch() {
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 
     public boolean isInStock() {
@@ -120,4 +149,24 @@ public class Product {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
-}
\ No newline at end of file
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public int getStockSlots() {
+        return stockSlots;
+    }
+}
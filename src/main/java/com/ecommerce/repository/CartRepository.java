@@ -3,19 +3,37 @@ package com.ecommerce.repository;
 import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
-    List<Cart> findByUser(User user);
+    /**
+     * The user's lines with their products, in one statement rather than one extra select per
+     * product for the eager association.
+     */
+    @Query("SELECT c FROM Cart c JOIN FETCH c.product WHERE c.user = :user ORDER BY c.id")
+    List<Cart> findByUser(@Param("user") User user);
+
+    /**
+     * Everything the cart page shows in one statement: each row is the line with its product
+     * fetched, followed by the cart's total units and exact total amount (the same on every
+     * row). An empty cart has no rows.
+     */
+    @Query("SELECT c, SUM(c.quantity) OVER (), SUM(c.quantity * p.price) OVER () " +
+            "FROM Cart c JOIN FETCH c.product p WHERE c.user.id = :userId ORDER BY c.id")
+    List<Object[]> findCartView(@Param("userId") Long userId);
 
     Optional<Cart> findByUserAndProduct(User user, Product product);
 
@@ -23,11 +41,76 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("DELETE FROM Cart c WHERE c.user = :user")
     void deleteByUser(@Param("user") User user);
 
-    @Query("SELECT SUM(c.quantity * c.product.price) FROM Cart c WHERE c.user = :user")
-    Double calculateTotalAmount(@Param("user") User user);
+    /**
+     * One row of total units and exact total amount of the user's cart, zeros when it is empty.
+     */
+    @Query("SELECT COALESCE(SUM(c.quantity), 0), COALESCE(SUM(c.quantity * p.price), 0) " +
+            "FROM Cart c JOIN c.product p WHERE c.user.id = :userId")
+    List<Object[]> summarize(@Param("userId") Long userId);
+
+    /**
+     * Up to one page of users, in id order after {@code afterUserId}, with a cart line not
+     * changed since {@code cutoff}. Their carts are candidates for {@link #deleteAbandoned}.
+     */
+    @Query("SELECT DISTINCT c.user.id FROM Cart c " +
+            "WHERE c.updatedAt < :cutoff AND c.user.id > :afterUserId ORDER BY c.user.id")
+    List<Long> findStaleCartUserIds(@Param("cutoff") LocalDateTime cutoff,
+                                    @Param("afterUserId") Long afterUserId,
+                                    Pageable page);
+
+    /**
+     * Deletes the whole cart of each of the users whose cart has not changed at all since
+     * {@code cutoff}; a cart with any newer line is left alone. Returns the lines deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.user.id IN :userIds AND NOT EXISTS " +
+            "(SELECT r.id FROM Cart r WHERE r.user = c.user AND r.updatedAt >= :cutoff)")
+    int deleteAbandoned(@Param("userIds") List<Long> userIds, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT DISTINCT c.user.id FROM Cart c WHERE c.user.id IN :userIds")
+    List<Long> findUserIdsWithCart(@Param("userIds") List<Long> userIds);
 
     @Query("SELECT COUNT(c) FROM Cart c WHERE c.user = :user")
     Long countByUser(@Param("user") User user);
 
     boolean existsByUserAndProduct(User user, Product product);
+
+    /**
+     * Adds {@code quantity} to the user's line for the product, creating it if needed, in one
+     * statement. The stock check is part of the statement, so nothing is written (and 0 is
+     * returned) when the product is missing or the new line quantity would exceed its stock.
+     * Concurrent adds of the same product serialize on the unique (user_id, product_id) key.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO cart (id, user_id, product_id, quantity, updated_at, version) " +
+            "SELECT nextval('cart_id_seq'), :userId, p.id, :quantity, CURRENT_TIMESTAMP, 0 FROM products p " +
+            "WHERE p.id = :productId AND p.stock_quantity >= :quantity " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = cart.quantity + EXCLUDED.quantity, " +
+            "updated_at = EXCLUDED.updated_at, version = cart.version + 1 " +
+            "WHERE cart.quantity + EXCLUDED.quantity <= " +
+            "(SELECT stock_quantity FROM products WHERE id = EXCLUDED.product_id)",
+            nativeQuery = true)
+    int upsertQuantity(@Param("userId") Long userId,
+                       @Param("productId") Long productId,
+                       @Param("quantity") int quantity);
+
+    /**
+     * H2 has no {@code ON CONFLICT ... DO UPDATE}; same contract as {@link #upsertQuantity} as a
+     * standard MERGE. A MERGE that loses an insert race fails on the unique key instead of
+     * waiting, so the caller retries it; that failure must not doom the surrounding transaction.
+     */
+    @Transactional(noRollbackFor = DataIntegrityViolationException.class)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "MERGE INTO cart c USING (" +
+            "SELECT p.id AS product_id, p.stock_quantity FROM products p " +
+            "WHERE p.id = :productId AND p.stock_quantity >= :quantity) s " +
+            "ON c.user_id = :userId AND c.product_id = s.product_id " +
+            "WHEN MATCHED AND c.quantity + :quantity <= s.stock_quantity " +
+            "THEN UPDATE SET quantity = c.quantity + :quantity, updated_at = CURRENT_TIMESTAMP, version = c.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (id, user_id, product_id, quantity, updated_at, version) " +
+            "VALUES (nextval('cart_id_seq'), :userId, s.product_id, :quantity, CURRENT_TIMESTAMP, 0)",
+            nativeQuery = true)
+    int mergeQuantity(@Param("userId") Long userId,
+                      @Param("productId") Long productId,
+                      @Param("quantity") int quantity);
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -29,4 +32,39 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT p FROM Product p WHERE p.name ILIKE %:searchTerm% OR p.description ILIKE %:searchTerm%")
     List<Product> searchProducts(@Param("searchTerm") String searchTerm);
-}
\ No newline at end of file
+
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
+    @Query("SELECT MAX(p.updatedAt) FROM Product p")
+    LocalDateTime findLatestUpdatedAt();
+
+    // Keyset pagination over in-stock products. "After" walks forward in display order,
+    // "Before" walks backward (reversed order) from a cursor row; callers re-reverse those.
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findInStockNewest(Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findInStockNewestAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 " +
+           "AND (p.createdAt > :createdAt OR (p.createdAt = :createdAt AND p.id > :id)) " +
+           "ORDER BY p.createdAt ASC, p.id ASC")
+    List<Product> findInStockNewestBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 ORDER BY p.price ASC, p.id ASC")
+    List<Product> findInStockByPrice(Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 " +
+           "AND (p.price > :price OR (p.price = :price AND p.id > :id)) " +
+           "ORDER BY p.price ASC, p.id ASC")
+    List<Product> findInStockByPriceAfter(@Param("price") BigDecimal price, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 " +
+           "AND (p.price < :price OR (p.price = :price AND p.id < :id)) " +
+           "ORDER BY p.price DESC, p.id DESC")
+    List<Product> findInStockByPriceBefore(@Param("price") BigDecimal price, @Param("id") Long id, Limit limit);
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One entry of a batch cart update posted to {@code /api/cart}, e.g.
+ * {@code {"op": "add", "productId": 3, "quantity": 2}}. {@code add} adds to the line,
+ * {@code set} replaces its quantity (0 removes it) and {@code remove} takes no quantity.
+ */
+public class CartChange {
+
+    public enum Op {
+        @JsonProperty("add") ADD,
+        @JsonProperty("set") SET,
+        @JsonProperty("remove") REMOVE
+    }
+
+    private Op op;
+    private Long productId;
+    private Integer quantity;
+
+    public CartChange() {
+    }
+
+    public CartChange(Op op, Long productId, Integer quantity) {
+        this.op = op;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public void setOp(Op op) {
+        this.op = op;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
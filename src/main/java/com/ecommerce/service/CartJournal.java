@@ -0,0 +1,148 @@
+package com.ecommerce.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size memory-mapped log of cart line changes, used by {@link CartStore} to survive a
+ * crash between two flushes. Each record holds the new absolute quantity of one line, so
+ * replaying the log in order yields the latest value of every line it mentions.
+ *
+ * <p>The file starts with a header holding a magic number and an epoch. Every record carries
+ * the epoch it was written in; {@link #reset()} bumps the epoch instead of zeroing the file, so
+ * records left over from before the reset are ignored on replay. Records are checksummed, which
+ * also stops replay at a torn write.
+ */
+class CartJournal implements AutoCloseable {
+
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_BYTES = 28;
+
+    private static final int MAGIC = 0x43415254; // "CART"
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int epoch;
+    private int position = HEADER_BYTES;
+
+    CartJournal(Path file, int capacityBytes) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.capacity = Math.max(capacityBytes, HEADER_BYTES + RECORD_BYTES);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.epoch = buffer.getInt(0) == MAGIC ? buffer.getInt(4) : 0;
+    }
+
+    /**
+     * Latest quantity per line from the records of the current epoch, in the order the lines
+     * were first touched. Quantity 0 means the line was removed.
+     */
+    synchronized Map<LineKey, Integer> replay() {
+        Map<LineKey, Integer> lines = new LinkedHashMap<>();
+        if (buffer.getInt(0) != MAGIC) {
+            return lines;
+        }
+        int offset = HEADER_BYTES;
+        while (offset + RECORD_BYTES <= capacity && buffer.getInt(offset) == epoch
+                && buffer.getInt(offset + RECORD_BYTES - 4) == checksum(offset)) {
+            lines.put(new LineKey(buffer.getLong(offset + 4), buffer.getLong(offset + 12)), buffer.getInt(offset + 20));
+            offset += RECORD_BYTES;
+        }
+        position = offset;
+        return lines;
+    }
+
+    /**
+     * Returns false, writing nothing, when the journal is full.
+     */
+    synchronized boolean append(long userId, long productId, int quantity) {
+        if (position + RECORD_BYTES > capacity) {
+            return false;
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            writeHeader();
+        }
+        buffer.putInt(position, epoch);
+        buffer.putLong(position + 4, userId);
+        buffer.putLong(position + 12, productId);
+        buffer.putInt(position + 20, quantity);
+        buffer.putInt(position + RECORD_BYTES - 4, checksum(position));
+        position += RECORD_BYTES;
+        return true;
+    }
+
+    synchronized int position() {
+        return position;
+    }
+
+    /**
+     * Discards every record. Only valid once all of them are reflected in the database.
+     */
+    synchronized void reset() {
+        epoch++;
+        writeHeader();
+        position = HEADER_BYTES;
+    }
+
+    /**
+     * Forces the mapped pages to disk. Without this the records still survive a process crash,
+     * just not a power loss.
+     */
+    synchronized void force() {
+        buffer.force();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(4, epoch);
+        buffer.putInt(0, MAGIC);
+    }
+
+    private int checksum(int offset) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < RECORD_BYTES - 4; i++) {
+            crc.update(buffer.get(offset + i));
+        }
+        return (int) crc.getValue();
+    }
+
+    static final class LineKey {
+
+        final long userId;
+        final long productId;
+
+        LineKey(long userId, long productId) {
+            this.userId = userId;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LineKey other && userId == other.userId && productId == other.productId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(userId) * 31 + Long.hashCode(productId);
+        }
+    }
+}
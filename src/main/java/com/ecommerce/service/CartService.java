@@ -5,133 +5,630 @@ import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
 import com.ecommerce.repository.CartRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
 public class CartService {
 
+    static final int MAX_BATCH_CHANGES = 100;
+
     @Autowired
     private CartRepository cartRepository;
 
     @Autowired
     private ProductService productService;
 
-    public Cart addToCart(User user, Long productId, Integer quantity) {
-        Product product = productService.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+    @Autowired
+    private DatabasePlatform databasePlatform;
 
-        if (!product.hasStock(quantity)) {
-            throw new RuntimeException("Insufficient stock for product: " + product.getName());
-        }
+    @Autowired
+    private CartStore cartStore;
 
-        Optional<Cart> existingCart = cartRepository.findByUserAndProduct(user, product);
+    @Autowired
+    private CartSummaryCache cartSummaries;
 
-        if (existingCart.isPresent()) {
-            Cart cart = existingCart.get();
-            int newQuantity = cart.getQuantity() + quantity;
+    @Autowired
+    private StockReservations reservations;
 
-            if (!product.hasStock(newQuantity)) {
-                throw new RuntimeException("Insufficient stock for requested quantity");
-            }
+    @Autowired
+    private OptimisticRetry optimisticRetry;
 
-            cart.setQuantity(newQuantity);
-            return cartRepository.save(cart);
-        } else {
-            Cart cart = new Cart();
-            cart.setUser(user);
-            cart.setProduct(product);
-            cart.setQuantity(quantity);
-            return cartRepository.save(cart);
+    /**
+     * Holds the added units in {@link StockReservations}, then adds them to the user's cart in a
+     * single upsert statement that also checks the line against stock.
+     */
+    public void addToCart(User user, Long productId, Integer quantity) {
+        if (quantity == null || quantity < 1) {
+            throw new RuntimeException("Quantity must be at least 1");
         }
+
+        changeCart(user, () -> {
+            Product product = findProduct(productId);
+            if (!product.hasStock(quantity)) {
+                throw new RuntimeException("Insufficient stock for product: " + product.getName());
+            }
+            hold(user, product, quantity);
+
+            if (cartStore.isEnabled()) {
+                cartStore.update(user.getId(), productId, current -> checkStock(product, current + quantity));
+                return Delta.of(product, quantity);
+            }
+            if (upsert(user.getId(), productId, quantity) == 1) {
+                return Delta.of(product, quantity);
+            }
+            throw new RuntimeException("Insufficient stock for requested quantity");
+        });
     }
 
-    public void removeFromCart(Long cartId) {
-        cartRepository.deleteById(cartId);
+    private int upsert(Long userId, Long productId, int quantity) {
+        if (!databasePlatform.isH2()) {
+            return cartRepository.upsertQuantity(userId, productId, quantity);
+        }
+        try {
+            return cartRepository.mergeQuantity(userId, productId, quantity);
+        } catch (DataIntegrityViolationException e) {
+            // H2's MERGE can lose an insert race on the unique key; the retry takes the update branch.
+            return cartRepository.mergeQuantity(userId, productId, quantity);
+        }
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeFromCart(User user, Long productId) {
-        Product product = productService.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        optimisticRetry.run("cart.removeFromCart", () -> {
+            releaseTo(user, productId, 0);
+            changeCart(user, () -> {
+                if (cartStore.isEnabled()) {
+                    int[] removed = new int[1];
+                    cartStore.update(user.getId(), productId, current -> {
+                        removed[0] = current;
+                        return 0;
+                    });
+                    // A line whose product is gone was never counted in the summary.
+                    return productService.findById(productId)
+                            .map(product -> Delta.of(product, -removed[0]))
+                            .orElse(Delta.NONE);
+                }
 
-        Optional<Cart> cart = cartRepository.findByUserAndProduct(user, product);
-        cart.ifPresent(cartRepository::delete);
+                Optional<Cart> cart = cartRepository.findByUserAndProduct(user, findProduct(productId));
+                cart.ifPresent(cartRepository::delete);
+                return cart.map(line -> Delta.of(line.getProduct(), -line.getQuantity())).orElse(Delta.NONE);
+            });
+        });
     }
 
-    public Cart updateQuantity(Long cartId, Integer quantity) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void updateQuantity(User user, Long productId, Integer quantity) {
         if (quantity <= 0) {
-            cartRepository.delete(cart);
-            return null;
+            removeFromCart(user, productId);
+            return;
         }
 
-        if (!cart.getProduct().hasStock(quantity)) {
-            throw new RuntimeException("Insufficient stock for requested quantity");
+        optimisticRetry.run("cart.updateQuantity", () -> {
+            changeCart(user, () -> {
+                if (cartStore.isEnabled()) {
+                    Product product = findProduct(productId);
+                    Integer previous = cartStore.lines(user.getId()).get(productId);
+                    if (previous == null) {
+                        throw new RuntimeException("Cart item not found");
+                    }
+                    resize(user, product, previous, checkStock(product, quantity));
+                    int[] replaced = new int[1];
+                    cartStore.update(user.getId(), productId, current -> {
+                        if (current == 0) {
+                            throw new RuntimeException("Cart item not found");
+                        }
+                        replaced[0] = current;
+                        return quantity;
+                    });
+                    return Delta.of(product, quantity - replaced[0]);
+                }
+
+                Cart cart = findLine(user, productId);
+                int previous = cart.getQuantity();
+                resize(user, cart.getProduct(), previous, checkStock(cart.getProduct(), quantity));
+                cart.setQuantity(quantity);
+                cartRepository.save(cart);
+                return Delta.of(cart.getProduct(), quantity - previous);
+            });
+        });
+    }
+
+    /**
+     * Applies a batch of changes in order as one transaction. The resulting quantity of every
+     * touched line is worked out first and checked against stock in a single pass, so either
+     * all of them are written or none is. Returns the touched lines with their new quantity,
+     * 0 for lines that were removed.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<Cart> applyChanges(User user, List<CartChange> changes) {
+        return optimisticRetry.execute("cart.applyChanges", () -> apply(user, changes, false));
+    }
+
+    /**
+     * Adds a guest's cart to the user's, in one {@link #applyChanges} batch. Unlike a posted
+     * batch it never fails on the guest's behalf: products that are gone are skipped and lines
+     * are cut back to what is still available. Returns the touched lines.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<Cart> mergeGuestCart(User user, Map<Long, Integer> guestLines) {
+        if (guestLines.isEmpty()) {
+            return List.of();
         }
+        List<CartChange> changes = new ArrayList<>();
+        guestLines.forEach((productId, quantity) -> changes.add(new CartChange(CartChange.Op.ADD, productId, quantity)));
+        return optimisticRetry.execute("cart.mergeGuestCart", () -> apply(user, changes, true));
+    }
 
-        cart.setQuantity(quantity);
-        return cartRepository.save(cart);
+    private List<Cart> apply(User user, List<CartChange> changes, boolean lenient) {
+        if (changes == null || changes.isEmpty()) {
+            throw new RuntimeException("No cart changes given");
+        }
+        if (changes.size() > MAX_BATCH_CHANGES) {
+            throw new RuntimeException("At most " + MAX_BATCH_CHANGES + " cart changes per request");
+        }
+
+        Map<Long, Integer> targets = new LinkedHashMap<>();
+        for (CartChange change : changes) {
+            if (change.getOp() == null || change.getProductId() == null) {
+                throw new RuntimeException("Each cart change needs an op and a productId");
+            }
+            targets.put(change.getProductId(), 0);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        productService.findAllById(new ArrayList<>(targets.keySet()))
+                .forEach(product -> products.put(product.getId(), product));
+        for (Long productId : targets.keySet()) {
+            if (!products.containsKey(productId) && !lenient) {
+                throw new RuntimeException("Product not found: " + productId);
+            }
+        }
+        targets.keySet().retainAll(products.keySet());
+
+        Map<Long, Cart> rows = new HashMap<>();
+        Map<Long, Integer> current = new HashMap<>();
+        if (cartStore.isEnabled()) {
+            current.putAll(cartStore.lines(user.getId()));
+        } else {
+            for (Cart cart : cartRepository.findByUser(user)) {
+                rows.put(cart.getProduct().getId(), cart);
+                current.put(cart.getProduct().getId(), cart.getQuantity());
+            }
+        }
+        targets.replaceAll((productId, zero) -> current.getOrDefault(productId, 0));
+
+        for (CartChange change : changes) {
+            if (!targets.containsKey(change.getProductId())) {
+                continue;
+            }
+            Integer quantity = change.getQuantity();
+            switch (change.getOp()) {
+                case ADD -> {
+                    if (quantity == null || quantity < 1) {
+                        throw new RuntimeException("Quantity must be at least 1");
+                    }
+                    targets.merge(change.getProductId(), quantity, Integer::sum);
+                }
+                case SET -> {
+                    if (quantity == null || quantity < 0) {
+                        throw new RuntimeException("Quantity must not be negative");
+                    }
+                    targets.put(change.getProductId(), quantity);
+                }
+                case REMOVE -> targets.put(change.getProductId(), 0);
+            }
+        }
+
+        // Lines that only shrink are let through even if stock has since dropped below them.
+        List<String> shortOf = new ArrayList<>();
+        targets.replaceAll((productId, target) -> {
+            Product product = products.get(productId);
+            int previous = current.getOrDefault(productId, 0);
+            if (target <= previous || product.hasStock(target)) {
+                return target;
+            }
+            shortOf.add(product.getName());
+            return Math.max(previous, product.getStockQuantity());
+        });
+        if (!shortOf.isEmpty() && !lenient) {
+            throw new RuntimeException("Insufficient stock for product: " + String.join(", ", shortOf));
+        }
+        targets.replaceAll((productId, target) -> {
+            int previous = current.getOrDefault(productId, 0);
+            if (lenient && target > previous && !tryHold(user, products.get(productId), target - previous)) {
+                // Other carts hold part of the stock: take what is still free.
+                Product product = products.get(productId);
+                int free = Math.min(target - previous,
+                        reservations.availableToSell(productId, product.getStockQuantity()));
+                return free > 0 && tryHold(user, product, free) ? previous + free : previous;
+            }
+            if (!lenient) {
+                resize(user, products.get(productId), previous, target);
+            }
+            return target;
+        });
+
+        List<Cart> lines = new ArrayList<>();
+        changeCart(user, () -> {
+            Delta delta = Delta.NONE;
+            for (Map.Entry<Long, Integer> entry : targets.entrySet()) {
+                Long productId = entry.getKey();
+                int target = entry.getValue();
+                Product product = products.get(productId);
+                int previous = current.getOrDefault(productId, 0);
+
+                if (cartStore.isEnabled()) {
+                    int[] replaced = new int[1];
+                    cartStore.update(user.getId(), productId, quantity -> {
+                        replaced[0] = quantity;
+                        return target;
+                    });
+                    previous = replaced[0];
+                } else if (target != previous) {
+                    Cart row = rows.get(productId);
+                    if (target == 0) {
+                        cartRepository.delete(row);
+                    } else {
+                        if (row == null) {
+                            row = new Cart();
+                            row.setUser(user);
+                            row.setProduct(product);
+                        }
+                        row.setQuantity(target);
+                        cartRepository.save(row);
+                    }
+                }
+
+                delta = delta.plus(Delta.of(product, target - previous));
+                Cart line = new Cart();
+                line.setUser(user);
+                line.setProduct(product);
+                line.setQuantity(target);
+                lines.add(line);
+            }
+            return delta;
+        });
+        return lines;
     }
 
     public List<Cart> getCartItems(User user) {
-        return cartRepository.findByUser(user);
+        if (!cartStore.isEnabled()) {
+            return cartRepository.findByUser(user);
+        }
+
+        List<Cart> items = new ArrayList<>();
+        cartStore.lines(user.getId()).forEach((productId, quantity) ->
+                // Lines whose product has been deleted are skipped; the flush drops them.
+                productService.findById(productId).ifPresent(product -> {
+                    Cart cart = new Cart();
+                    cart.setUser(user);
+                    cart.setProduct(product);
+                    cart.setQuantity(quantity);
+                    items.add(cart);
+                }));
+        return items;
+    }
+
+    /**
+     * The user's lines and summary for the cart page. Without the write-behind store this is a
+     * single statement, whose totals also seed the summary cache if it has no entry yet.
+     */
+    @Transactional(readOnly = true)
+    public CartView getCartView(User user) {
+        if (cartStore.isEnabled()) {
+            return new CartView(getCartItems(user), getCartSummary(user));
+        }
+        // Observed before the query, so a change committing while it runs keeps it out of the cache.
+        long token = cartSummaries.observe(user.getId());
+        List<Cart> lines = new ArrayList<>();
+        long quantity = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (Object[] row : cartRepository.findCartView(user.getId())) {
+            lines.add((Cart) row[0]);
+            quantity = ((Number) row[1]).longValue();
+            total = new BigDecimal(row[2].toString());
+        }
+        return new CartView(lines, cartSummaries.seed(user.getId(), token, new CartSummary(quantity, total, 0)));
+    }
+
+    /**
+     * A guest's cart lines (product id to quantity, as kept in their cookie) as cart items.
+     * Products that no longer exist are left out.
+     */
+    @Transactional(readOnly = true)
+    public List<Cart> getGuestCartItems(Map<Long, Integer> lines) {
+        List<Cart> items = new ArrayList<>();
+        if (lines.isEmpty()) {
+            return items;
+        }
+        for (Product product : productService.findAllById(new ArrayList<>(lines.keySet()))) {
+            Cart cart = new Cart();
+            cart.setProduct(product);
+            cart.setQuantity(lines.get(product.getId()));
+            items.add(cart);
+        }
+        return items;
+    }
+
+    /**
+     * Checks that a guest may have {@code quantity} of the product in their cart. Guests hold
+     * no stock, but they are not offered stock that other carts are holding either.
+     */
+    @Transactional(readOnly = true)
+    public Product checkGuestQuantity(Long productId, int quantity) {
+        Product product = findProduct(productId);
+        if (quantity > reservations.availableToSell(productId, product.getStockQuantity())) {
+            throw new RuntimeException("Insufficient stock for product: " + product.getName());
+        }
+        return product;
+    }
+
+    /**
+     * Units and exact total of the user's cart. Served from {@link CartSummaryCache}, which the
+     * mutations in this class keep up to date, so it only touches the database once per user.
+     */
+    @Transactional(readOnly = true)
+    public CartSummary getCartSummary(User user) {
+        return cartSummaries.get(user.getId(), userId -> {
+            if (cartStore.isEnabled()) {
+                return CartSummary.of(getCartItems(user), 0);
+            }
+            Object[] row = cartRepository.summarize(userId).get(0);
+            return new CartSummary(((Number) row[0]).longValue(), new BigDecimal(row[1].toString()), 0);
+        });
     }
 
     public BigDecimal getCartTotal(User user) {
-        Double total = cartRepository.calculateTotalAmount(user);
-        return total != null ? BigDecimal.valueOf(total) : BigDecimal.ZERO;
+        return getCartSummary(user).getTotal();
     }
 
     public Long getCartItemCount(User user) {
+        if (cartStore.isEnabled()) {
+            return (long) getCartItems(user).size();
+        }
         return cartRepository.countByUser(user);
     }
 
+    /**
+     * In write-behind mode the in-memory cart is only emptied once the surrounding transaction
+     * (typically the checkout) commits.
+     */
     public void clearCart(User user) {
-        cartRepository.deleteByUser(user);
+        long userId = user.getId();
+        afterCompletion(committed -> {
+            if (committed) {
+                reservations.releaseAll(userId);
+            }
+        });
+        cartSummaries.beginChange(userId);
+        if (!cartStore.isEnabled()) {
+            try {
+                cartRepository.deleteByUser(user);
+            } catch (RuntimeException e) {
+                cartSummaries.endClear(userId, false);
+                throw e;
+            }
+            afterCompletion(committed -> cartSummaries.endClear(userId, committed));
+        } else {
+            afterCompletion(committed -> {
+                try {
+                    if (committed) {
+                        cartStore.clear(userId);
+                    }
+                } finally {
+                    cartSummaries.endClear(userId, committed);
+                }
+            });
+        }
     }
 
     public boolean isProductInCart(User user, Long productId) {
-        Product product = productService.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        return cartRepository.existsByUserAndProduct(user, product);
+        return findCartItem(user, productId).isPresent();
     }
 
     public Optional<Cart> findCartItem(User user, Long productId) {
-        Product product = productService.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        return cartRepository.findByUserAndProduct(user, product);
+        Product product = findProduct(productId);
+        if (!cartStore.isEnabled()) {
+            return cartRepository.findByUserAndProduct(user, product);
+        }
+        Integer quantity = cartStore.lines(user.getId()).get(productId);
+        if (quantity == null) {
+            return Optional.empty();
+        }
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setProduct(product);
+        cart.setQuantity(quantity);
+        return Optional.of(cart);
     }
 
-    public Cart increaseQuantity(Long cartId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void increaseQuantity(User user, Long productId) {
+        optimisticRetry.run("cart.increaseQuantity", () -> {
+            changeCart(user, () -> {
+                if (cartStore.isEnabled()) {
+                    Product product = findProduct(productId);
+                    // The store is not transactional, so hold first; a failed update cancels the hold.
+                    hold(user, product, 1);
+                    cartStore.update(user.getId(), productId, current -> {
+                        if (current == 0) {
+                            throw new RuntimeException("Cart item not found");
+                        }
+                        if (!product.hasStock(current + 1)) {
+                            throw new RuntimeException("Insufficient stock");
+                        }
+                        return current + 1;
+                    });
+                    return Delta.of(product, 1);
+                }
+
+                Cart cart = findLine(user, productId);
+                int newQuantity = cart.getQuantity() + 1;
+                if (!cart.getProduct().hasStock(newQuantity)) {
+                    throw new RuntimeException("Insufficient stock");
+                }
+                hold(user, cart.getProduct(), 1);
+
+                cart.setQuantity(newQuantity);
+                cartRepository.save(cart);
+                return Delta.of(cart.getProduct(), 1);
+            });
+        });
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void decreaseQuantity(User user, Long productId) {
+        optimisticRetry.run("cart.decreaseQuantity", () -> {
+            changeCart(user, () -> {
+                if (cartStore.isEnabled()) {
+                    Product product = findProduct(productId);
+                    int[] remaining = new int[1];
+                    cartStore.update(user.getId(), productId, current -> {
+                        if (current == 0) {
+                            throw new RuntimeException("Cart item not found");
+                        }
+                        remaining[0] = current - 1;
+                        return current - 1;
+                    });
+                    releaseTo(user, productId, remaining[0]);
+                    return Delta.of(product, -1);
+                }
+
+                Cart cart = findLine(user, productId);
+                releaseTo(user, productId, cart.getQuantity() - 1);
+                if (cart.getQuantity() <= 1) {
+                    cartRepository.delete(cart);
+                } else {
+                    cart.setQuantity(cart.getQuantity() - 1);
+                    cartRepository.save(cart);
+                }
+                return Delta.of(cart.getProduct(), -1);
+            });
+        });
+    }
 
-        int newQuantity = cart.getQuantity() + 1;
-        if (!cart.getProduct().hasStock(newQuantity)) {
-            throw new RuntimeException("Insufficient stock");
+    /**
+     * Runs one cart mutation and applies what it returns to the cached summary once the
+     * transaction commits.
+     */
+    private void changeCart(User user, Supplier<Delta> change) {
+        long userId = user.getId();
+        cartSummaries.beginChange(userId);
+        Delta delta;
+        try {
+            delta = change.get();
+        } catch (RuntimeException e) {
+            cartSummaries.endChange(userId, false, 0, BigDecimal.ZERO);
+            throw e;
         }
+        afterCompletion(committed -> cartSummaries.endChange(userId, committed, delta.quantity, delta.total));
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    /**
+     * Holds {@code units} more of the product for the user; the hold is given back if the
+     * transaction does not commit.
+     */
+    private void hold(User user, Product product, int units) {
+        if (!tryHold(user, product, units)) {
+            throw new RuntimeException("Insufficient stock for product: " + product.getName()
+                    + " (held in other carts)");
+        }
+    }
 
-        cart.setQuantity(newQuantity);
-        return cartRepository.save(cart);
+    private boolean tryHold(User user, Product product, int units) {
+        if (!reservations.reserve(user.getId(), product.getId(), units, product.getStockQuantity())) {
+            return false;
+        }
+        afterCompletion(committed -> {
+            if (!committed) {
+                reservations.cancel(user.getId(), product.getId(), units);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Shrinks the user's hold on the product to the line's new quantity once the change commits.
+     */
+    private void releaseTo(User user, Long productId, int keep) {
+        afterCompletion(committed -> {
+            if (committed) {
+                reservations.release(user.getId(), productId, keep);
+            }
+        });
+    }
+
+    private void resize(User user, Product product, int previous, int target) {
+        if (target > previous) {
+            hold(user, product, target - previous);
+        } else if (target < previous) {
+            releaseTo(user, product.getId(), target);
+        }
     }
 
-    public Cart decreaseQuantity(Long cartId) {
-        Cart cart = cartRepository.findById(cartId)
+    private Product findProduct(Long productId) {
+        return productService.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+    }
+
+    private Cart findLine(User user, Long productId) {
+        return cartRepository.findByUserAndProduct(user, findProduct(productId))
                 .orElseThrow(() -> new RuntimeException("Cart item not found"));
+    }
 
-        if (cart.getQuantity() <= 1) {
-            cartRepository.delete(cart);
-            return null;
+    private static int checkStock(Product product, int quantity) {
+        if (!product.hasStock(quantity)) {
+            throw new RuntimeException("Insufficient stock for requested quantity");
         }
+        return quantity;
+    }
+
+    private static final class Delta {
 
-        cart.setQuantity(cart.getQuantity() - 1);
-        return cartRepository.save(cart);
+        static final Delta NONE = new Delta(0, BigDecimal.ZERO);
+
+        final long quantity;
+        final BigDecimal total;
+
+        private Delta(long quantity, BigDecimal total) {
+            this.quantity = quantity;
+            this.total = total;
+        }
+
+        static Delta of(Product product, int quantity) {
+            return new Delta(quantity, product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(quantity + other.quantity, total.add(other.total));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,401 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Write-behind cart storage, enabled with {@code app.cart.write-behind.enabled}. Carts are kept
+ * in memory per user and every change is first appended to a memory-mapped {@link CartJournal};
+ * a background thread then writes the changed lines to the {@code cart} table in one batch per
+ * interval, so a burst of +/- clicks on a line costs a single upsert. On startup any journal
+ * left behind by a crash is replayed into the table before the store is used.
+ *
+ * <p>All cart writes must go through this store while it is enabled, and it assumes a single
+ * application instance owns the carts.
+ */
+@Component
+public class CartStore implements SmartInitializingSingleton {
+
+    private static final String DELETE_SQL = "DELETE FROM cart WHERE user_id = ? AND product_id = ?";
+    private static final String UPSERT_SQL = "INSERT INTO cart (id, user_id, product_id, quantity, updated_at, version) " +
+            "VALUES (nextval('cart_id_seq'), ?, ?, ?, CURRENT_TIMESTAMP, 0) " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity, " +
+            "updated_at = EXCLUDED.updated_at, version = cart.version + 1";
+    private static final String H2_UPSERT_SQL = "MERGE INTO cart c USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), " +
+            "CAST(? AS INTEGER))) s (user_id, product_id, quantity) " +
+            "ON c.user_id = s.user_id AND c.product_id = s.product_id " +
+            "WHEN MATCHED THEN UPDATE SET quantity = s.quantity, updated_at = CURRENT_TIMESTAMP, version = c.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (id, user_id, product_id, quantity, updated_at, version) " +
+            "VALUES (nextval('cart_id_seq'), s.user_id, s.product_id, s.quantity, CURRENT_TIMESTAMP, 0)";
+    private static final String LOAD_SQL = "SELECT product_id, quantity FROM cart WHERE user_id = ? ORDER BY id";
+
+    @Value("${app.cart.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cart.write-behind.journal:data/cart.journal}")
+    private String journalPath;
+
+    @Value("${app.cart.write-behind.journal-bytes:16777216}")
+    private int journalBytes;
+
+    @Value("${app.cart.write-behind.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${app.cart.write-behind.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DatabasePlatform databasePlatform;
+
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    private final Set<UserCart> dirtyCarts = ConcurrentHashMap.newKeySet();
+
+    // Changes hold the read side while they update a cart and append to the journal; a flush
+    // takes the write side to collect the dirty lines and the journal position they cover.
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Object flushLock = new Object();
+
+    private CartJournal journal;
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsFlushed = new AtomicLong();
+    private final AtomicLong rowsDropped = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int recovered;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opens the journal and replays it. Runs after all singletons (including the schema set up
+     * by JPA) exist but before the web server starts taking requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = new CartJournal(Paths.get(journalPath), journalBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open cart journal " + journalPath, e);
+        }
+
+        Map<CartJournal.LineKey, Integer> pending = journal.replay();
+        if (!pending.isEmpty()) {
+            List<Object[]> upserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            pending.forEach((line, quantity) -> addRow(upserts, deletes, line.userId, line.productId, quantity));
+            write(upserts, deletes);
+            recovered = pending.size();
+        }
+        journal.reset();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The user's lines, product id to quantity, in the order they were added.
+     */
+    public Map<Long, Integer> lines(long userId) {
+        UserCart cart = cart(userId);
+        synchronized (cart) {
+            cart.touch();
+            return new LinkedHashMap<>(cart.lines);
+        }
+    }
+
+    /**
+     * Sets one line to {@code change(current quantity)}; 0 removes it. The function runs while
+     * the cart is locked, so it sees the latest quantity and may throw to reject the change.
+     * Returns the new quantity.
+     */
+    public int update(long userId, long productId, IntUnaryOperator change) {
+        boolean flushed = false;
+        while (true) {
+            UserCart cart = cart(userId);
+            journalLock.readLock().lock();
+            try {
+                synchronized (cart) {
+                    if (!cart.evicted) {
+                        int current = cart.lines.getOrDefault(productId, 0);
+                        int next = change.applyAsInt(current);
+                        if (next == current) {
+                            return current;
+                        }
+                        if (journal.append(userId, productId, next)) {
+                            apply(cart, productId, next);
+                            return next;
+                        }
+                    }
+                }
+            } finally {
+                journalLock.readLock().unlock();
+            }
+
+            if (!cart.evicted) {
+                // The journal is full: flush synchronously to make room, once.
+                if (flushed) {
+                    throw new RuntimeException("Cart changes cannot be saved right now, please try again");
+                }
+                flush();
+                flushed = true;
+            }
+        }
+    }
+
+    /**
+     * Whether the user's cart is currently held in memory, i.e. the table may not show all of it.
+     */
+    public boolean isResident(long userId) {
+        return enabled && carts.containsKey(userId);
+    }
+
+    public void clear(long userId) {
+        for (Long productId : lines(userId).keySet()) {
+            update(userId, productId, current -> 0);
+        }
+    }
+
+    /**
+     * Writes every changed line to the database. Called by the background thread; also safe to
+     * call directly.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            long start = System.nanoTime();
+            List<Object[]> upserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            Map<UserCart, Set<Long>> drained = new LinkedHashMap<>();
+            int mark;
+
+            journalLock.writeLock().lock();
+            try {
+                mark = journal.position();
+                for (UserCart cart : dirtyCarts) {
+                    synchronized (cart) {
+                        for (Long productId : cart.dirty) {
+                            addRow(upserts, deletes, cart.userId, productId, cart.lines.getOrDefault(productId, 0));
+                        }
+                        drained.put(cart, new HashSet<>(cart.dirty));
+                        cart.dirty.clear();
+                    }
+                }
+                dirtyCarts.clear();
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+
+            if (!drained.isEmpty()) {
+                try {
+                    write(upserts, deletes);
+                } catch (DataAccessException e) {
+                    // Nothing was lost: the lines are still in the journal; mark them dirty again.
+                    flushFailures.incrementAndGet();
+                    journalLock.writeLock().lock();
+                    try {
+                        drained.forEach((cart, productIds) -> {
+                            synchronized (cart) {
+                                cart.dirty.addAll(productIds);
+                            }
+                            dirtyCarts.add(cart);
+                        });
+                    } finally {
+                        journalLock.writeLock().unlock();
+                    }
+                    throw e;
+                }
+                flushes.incrementAndGet();
+                rowsFlushed.addAndGet(upserts.size() + deletes.size());
+                lastFlushMillis = (System.nanoTime() - start) / 1_000_000;
+            }
+
+            // Only once nothing was appended after the drain can the whole journal go; otherwise
+            // it is kept (replaying already-flushed lines is harmless) and reset on a later flush.
+            journalLock.writeLock().lock();
+            try {
+                if (journal.position() == mark && mark > CartJournal.HEADER_BYTES) {
+                    journal.reset();
+                }
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+            journal.force();
+            evictIdle();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("carts", carts.size());
+        stats.put("dirtyCarts", dirtyCarts.size());
+        stats.put("changes", changes.get());
+        stats.put("flushes", flushes.get());
+        stats.put("rowsFlushed", rowsFlushed.get());
+        stats.put("rowsDropped", rowsDropped.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("journalBytesUsed", journal.position());
+        stats.put("journalCapacity", journal.capacity());
+        stats.put("recoveredLines", recovered);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!enabled || journal == null) {
+            return;
+        }
+        flusher.shutdownNow();
+        try {
+            flush();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private UserCart cart(long userId) {
+        return carts.computeIfAbsent(userId, this::load);
+    }
+
+    private UserCart load(long userId) {
+        UserCart cart = new UserCart(userId);
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            cart.lines.put(rs.getLong("product_id"), rs.getInt("quantity"));
+        }, userId);
+        return cart;
+    }
+
+    private void apply(UserCart cart, long productId, int quantity) {
+        if (quantity == 0) {
+            cart.lines.remove(productId);
+        } else {
+            cart.lines.put(productId, quantity);
+        }
+        cart.dirty.add(productId);
+        cart.touch();
+        dirtyCarts.add(cart);
+        changes.incrementAndGet();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Counted in flushFailures; retried on the next tick.
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+        for (UserCart cart : carts.values()) {
+            synchronized (cart) {
+                if (cart.lastAccess - cutoff < 0 && cart.dirty.isEmpty()) {
+                    cart.evicted = true;
+                    carts.remove(cart.userId, cart);
+                }
+            }
+        }
+    }
+
+    private static void addRow(List<Object[]> upserts, List<Object[]> deletes, long userId, long productId, int quantity) {
+        if (quantity > 0) {
+            upserts.add(new Object[]{userId, productId, quantity});
+        } else {
+            deletes.add(new Object[]{userId, productId});
+        }
+    }
+
+    /**
+     * One transaction for the whole batch. If the database rejects it (typically a line whose
+     * product has since been deleted) the rows are retried one by one and the bad ones dropped.
+     */
+    private void write(List<Object[]> upserts, List<Object[]> deletes) {
+        String upsertSql = databasePlatform.isH2() ? H2_UPSERT_SQL : UPSERT_SQL;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> {
+                if (!upserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(upsertSql, upserts);
+                }
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            for (Object[] row : upserts) {
+                try {
+                    transaction.executeWithoutResult(status -> jdbcTemplate.update(upsertSql, row));
+                } catch (DataIntegrityViolationException rowFailure) {
+                    rowsDropped.incrementAndGet();
+                }
+            }
+            transaction.executeWithoutResult(status -> {
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+                }
+            });
+        }
+    }
+
+    private static final class UserCart {
+
+        private final long userId;
+        private final Map<Long, Integer> lines = new LinkedHashMap<>();
+        private final Set<Long> dirty = new HashSet<>();
+        private long lastAccess = System.nanoTime();
+        private boolean evicted;
+
+        UserCart(long userId) {
+            this.userId = userId;
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Cart;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Units in a user's cart and their exact total, plus a version that changes whenever either
+ * does (usable in ETags). Immutable; {@link CartSummaryCache} swaps in a new one on each change.
+ */
+public class CartSummary {
+
+    private final long quantity;
+    private final BigDecimal total;
+    private final long version;
+
+    public CartSummary(long quantity, BigDecimal total, long version) {
+        this.quantity = quantity;
+        this.total = total;
+        this.version = version;
+    }
+
+    /**
+     * Summary of the given cart lines, for carts that are not cached (a guest's).
+     */
+    public static CartSummary of(List<Cart> items, long version) {
+        long quantity = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (Cart item : items) {
+            quantity += item.getQuantity();
+            total = total.add(item.getSubtotal());
+        }
+        return new CartSummary(quantity, total, version);
+    }
+
+    CartSummary plus(long quantityDelta, BigDecimal totalDelta, long newVersion) {
+        return new CartSummary(quantity + quantityDelta, total.add(totalDelta), newVersion);
+    }
+
+    CartSummary withVersion(long newVersion) {
+        return new CartSummary(quantity, total, newVersion);
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return quantity == 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.ecommerce.service;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-user {@link CartSummary}, loaded once and then kept current by applying each committed
+ * cart change to it rather than re-aggregating the cart.
+ *
+ * <p>A change is bracketed by {@link #beginChange} (while its transaction is still open) and
+ * {@link #endChange} (once it has committed or rolled back). A summary loaded from the database
+ * is only cached if no change for that user was in flight or finished while it was being
+ * loaded; otherwise the load might or might not include the change and applying the delta on
+ * top could count it twice. Users are tracked in stripes, so an unrelated user's change only
+ * occasionally costs a load its caching.
+ */
+@Component
+public class CartSummaryCache {
+
+    private static final int MAX_ENTRIES = 50_000;
+    private static final int STRIPES = 256;
+
+    private final Map<Long, CartSummary> summaries = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(STRIPES);
+    private final AtomicLongArray finished = new AtomicLongArray(STRIPES);
+    private final AtomicLong versions = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+
+    /**
+     * The cached summary, or {@code loader}'s result (whose version is ignored) when there is none.
+     */
+    public CartSummary get(long userId, LongFunction<CartSummary> loader) {
+        CartSummary cached = summaries.get(userId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        long token = observe(userId);
+        return store(userId, token, loader.apply(userId));
+    }
+
+    /**
+     * For a summary loaded outside {@link #get} (as part of a larger query): call before the
+     * query runs and pass the result to {@link #seed} with what it loaded.
+     */
+    public long observe(long userId) {
+        int stripe = stripe(userId);
+        long observed = finished.get(stripe);
+        return inFlight.get(stripe) == 0 ? observed : -1;
+    }
+
+    /**
+     * The cached summary, or {@code loaded} (whose version is ignored), caching it if no change
+     * for the user was in flight or finished since {@link #observe} returned {@code token}.
+     */
+    public CartSummary seed(long userId, long token, CartSummary loaded) {
+        CartSummary cached = summaries.get(userId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return store(userId, token, loaded);
+    }
+
+    public void beginChange(long userId) {
+        inFlight.incrementAndGet(stripe(userId));
+    }
+
+    /**
+     * Ends a change started with {@link #beginChange}, adding the deltas if it committed.
+     */
+    public void endChange(long userId, boolean committed, long quantityDelta, BigDecimal totalDelta) {
+        end(userId, committed ? summary -> summary == null ? null
+                : summary.plus(quantityDelta, totalDelta, versions.incrementAndGet()) : null);
+        if (committed) {
+            incrementalUpdates.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ends a change started with {@link #beginChange} that emptied the cart.
+     */
+    public void endClear(long userId, boolean committed) {
+        end(userId, committed ? summary -> new CartSummary(0, BigDecimal.ZERO, versions.incrementAndGet()) : null);
+    }
+
+    /**
+     * Forgets every summary, e.g. after a price change.
+     */
+    public void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            finished.incrementAndGet(i);
+        }
+        summaries.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", summaries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("incrementalUpdates", incrementalUpdates.get());
+        return stats;
+    }
+
+    private CartSummary store(long userId, long token, CartSummary summary) {
+        CartSummary loaded = summary.withVersion(versions.incrementAndGet());
+        if (token < 0) {
+            return loaded;
+        }
+
+        if (summaries.size() >= MAX_ENTRIES) {
+            Iterator<Long> keys = summaries.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        int stripe = stripe(userId);
+        CartSummary stored = summaries.compute(userId, (id, existing) -> existing != null ? existing
+                : inFlight.get(stripe) == 0 && finished.get(stripe) == token ? loaded : null);
+        return stored != null ? stored : loaded;
+    }
+
+    private void end(long userId, UnaryOperator<CartSummary> update) {
+        int stripe = stripe(userId);
+        try {
+            if (update != null) {
+                summaries.compute(userId, (id, summary) -> update.apply(summary));
+            }
+        } finally {
+            finished.incrementAndGet(stripe);
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    private static int stripe(long userId) {
+        return (int) (userId & (STRIPES - 1));
+    }
+}
@@ -0,0 +1,222 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes carts nobody has changed for {@code app.cart.sweeper.abandoned-days}, so the
+ * {@code cart} table and its user index only hold carts that may still be checked out.
+ *
+ * <p>A run walks the users with a stale line in user id order, a chunk at a time, remembering
+ * the last id instead of using an offset. Each chunk is one short transaction that deletes
+ * only carts with no line newer than the cutoff, so a shopper who comes back mid-run keeps
+ * their cart; between chunks the sweeper pauses so it never holds locks checkout is waiting on
+ * for long.
+ */
+@Component
+public class CartSweeper implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CartSweeper.class);
+
+    @Value("${app.cart.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cart.sweeper.abandoned-days:30}")
+    private long abandonedDays;
+
+    @Value("${app.cart.sweeper.interval-minutes:60}")
+    private long intervalMinutes;
+
+    @Value("${app.cart.sweeper.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.cart.sweeper.pause-ms:250}")
+    private long pauseMillis;
+
+    @Value("${app.cart.sweeper.timeout-seconds:5}")
+    private int timeoutSeconds;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CartSummaryCache cartSummaries;
+
+    @Autowired
+    private StockReservations reservations;
+
+    @Autowired
+    private CartStore cartStore;
+
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong cartsDeleted = new AtomicLong();
+    private final AtomicLong linesDeleted = new AtomicLong();
+    private final AtomicLong cartsKept = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long cursor;
+    private volatile LocalDateTime lastRunStarted;
+    private volatile long lastRunMillis;
+    private volatile int lastRunCarts;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Deletes every cart abandoned before {@code now - abandoned-days}. Returns the number of
+     * carts deleted, or -1 if a run was already in progress.
+     */
+    public int sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        int deleted = 0;
+        try {
+            lastRunStarted = LocalDateTime.now();
+            LocalDateTime cutoff = lastRunStarted.minusDays(abandonedDays);
+            long after = 0;
+            while (!stopped) {
+                List<Long> userIds = cartRepository.findStaleCartUserIds(cutoff, after, PageRequest.of(0, chunkSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                after = userIds.get(userIds.size() - 1);
+                cursor = after;
+                // A cart held by the write-behind store may have lines the table does not show yet.
+                List<Long> sweepable = userIds.stream().filter(userId -> !cartStore.isResident(userId)).toList();
+                if (!sweepable.isEmpty()) {
+                    deleted += deleteChunk(sweepable, cutoff);
+                }
+                chunks.incrementAndGet();
+                if (userIds.size() < chunkSize) {
+                    break;
+                }
+                pause();
+            }
+            runs.incrementAndGet();
+            lastRunCarts = deleted;
+            return deleted;
+        } finally {
+            cursor = 0;
+            lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+            running.set(false);
+        }
+    }
+
+    private int deleteChunk(List<Long> userIds, LocalDateTime cutoff) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setTimeout(timeoutSeconds);
+        userIds.forEach(cartSummaries::beginChange);
+        Set<Long> kept = new HashSet<>();
+        boolean committed = false;
+        try {
+            int lines = transaction.execute(status -> {
+                int count = cartRepository.deleteAbandoned(userIds, cutoff);
+                kept.addAll(cartRepository.findUserIdsWithCart(userIds));
+                return count;
+            });
+            committed = true;
+            linesDeleted.addAndGet(lines);
+        } finally {
+            for (Long userId : userIds) {
+                if (kept.contains(userId)) {
+                    cartSummaries.endChange(userId, false, 0, null);
+                } else {
+                    cartSummaries.endClear(userId, committed);
+                }
+            }
+        }
+        int deleted = userIds.size() - kept.size();
+        userIds.stream().filter(userId -> !kept.contains(userId)).forEach(reservations::releaseAll);
+        cartsDeleted.addAndGet(deleted);
+        cartsKept.addAndGet(kept.size());
+        return deleted;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            int deleted = sweep();
+            if (deleted > 0) {
+                log.info("Cart sweeper deleted {} abandoned carts", deleted);
+            }
+        } catch (RuntimeException e) {
+            // Counted in failures; the next run starts over from the first user.
+            failures.incrementAndGet();
+            log.warn("Cart sweeper failed", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("abandonedDays", abandonedDays);
+        stats.put("running", running.get());
+        stats.put("cursorUserId", cursor);
+        stats.put("runs", runs.get());
+        stats.put("chunks", chunks.get());
+        stats.put("cartsDeleted", cartsDeleted.get());
+        stats.put("linesDeleted", linesDeleted.get());
+        stats.put("cartsKept", cartsKept.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunStarted", lastRunStarted);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunCarts", lastRunCarts);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Cart;
+
+import java.util.List;
+
+/**
+ * A cart's lines, with their products loaded, together with its {@link CartSummary}.
+ */
+public final class CartView {
+
+    private final List<Cart> lines;
+    private final CartSummary summary;
+
+    public CartView(List<Cart> lines, CartSummary summary) {
+        this.lines = lines;
+        this.summary = summary;
+    }
+
+    public List<Cart> getLines() {
+        return lines;
+    }
+
+    public CartSummary getSummary() {
+        return summary;
+    }
+}
@@ -0,0 +1,101 @@
+package com.ecommerce.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Catalog listing parameters bound from the query string of the product listing pages.
+ * {@code after} and {@code before} are opaque cursors taken from a previous {@link ProductPage}.
+ * Listings show in-stock products only unless {@code inStock=false} is passed.
+ */
+public class CatalogQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 96;
+
+    public enum Sort {
+        NEWEST, PRICE
+    }
+
+    private Sort sort = Sort.NEWEST;
+    private String after;
+    private String before;
+    private Integer size;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+
+    public int getPageSize() {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    public boolean isInStockOnly() {
+        return inStock == null || inStock;
+    }
+
+    /**
+     * True when the listing differs from the plain in-stock catalog and has to go through the
+     * facet index rather than the keyset queries.
+     */
+    public boolean isFiltered() {
+        return minPrice != null || maxPrice != null || !isInStockOnly();
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public void setSort(Sort sort) {
+        this.sort = sort != null ? sort : Sort.NEWEST;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public String getBefore() {
+        return before;
+    }
+
+    public void setBefore(String before) {
+        this.before = before;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Boolean getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+}
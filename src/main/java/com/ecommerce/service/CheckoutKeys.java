@@ -0,0 +1,175 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The orders placed under each shopper's checkout idempotency keys, remembered for
+ * {@code app.orders.idempotency.ttl-minutes}, so a double-clicked or retried checkout gets the
+ * order the first submission placed instead of checking out again.
+ *
+ * <p>The first submission claims the key; a duplicate arriving while it is still running waits
+ * for its outcome. A key whose checkout failed keeps its error for anyone asking after it but
+ * can be claimed again, so the shopper can fix their cart and resubmit the same form. Keys live
+ * in memory only, so they are not shared between instances and a restart forgets them.
+ */
+@Component
+public class CheckoutKeys {
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long WAIT_SECONDS = 30;
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    @Autowired
+    public CheckoutKeys(@Value("${app.orders.idempotency.ttl-minutes:10}") long ttlMinutes) {
+        this(TimeUnit.MINUTES.toMillis(ttlMinutes), System::nanoTime);
+        long sweepMillis = Math.max(1000, TimeUnit.MINUTES.toMillis(ttlMinutes) / 4);
+        sweeper.scheduleWithFixedDelay(this::expire, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    CheckoutKeys(long ttlMillis, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkout-keys");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Claims the key for a new checkout and returns null, or returns the outcome of the checkout
+     * that already claimed it, which may still be running.
+     */
+    public CompletableFuture<Long> claim(long userId, String key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Invalid idempotency key");
+        }
+        Entry claimed = new Entry(clock.getAsLong() + ttlNanos);
+        Entry existing = entries.compute(entryKey(userId, key), (k, entry) -> entry != null
+                && !entry.isExpired(clock.getAsLong()) && !entry.outcome.isCompletedExceptionally() ? entry : claimed);
+        if (existing == claimed) {
+            checkouts.incrementAndGet();
+            return null;
+        }
+        duplicates.incrementAndGet();
+        return existing.outcome;
+    }
+
+    /**
+     * Records the order the claimed checkout placed; call once its transaction has committed.
+     */
+    public void complete(long userId, String key, long orderId) {
+        Entry entry = entries.get(entryKey(userId, key));
+        if (entry != null) {
+            entry.outcome.complete(orderId);
+        }
+    }
+
+    /**
+     * Records the error of a claimed checkout that failed, handing it to any duplicates already
+     * waiting, and frees the key to be claimed again.
+     */
+    public void fail(long userId, String key, RuntimeException error) {
+        Entry entry = entries.get(entryKey(userId, key));
+        if (entry != null) {
+            entry.outcome.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * The outcome of the latest checkout under the key, or null if there is none or it expired.
+     */
+    public CompletableFuture<Long> find(long userId, String key) {
+        Entry entry = entries.get(entryKey(userId, key));
+        return entry != null && !entry.isExpired(clock.getAsLong()) ? entry.outcome : null;
+    }
+
+    /**
+     * The order id of a claim returned by {@link #claim}, waiting for it if need be.
+     */
+    public long await(CompletableFuture<Long> outcome) {
+        if (!outcome.isDone()) {
+            waits.incrementAndGet();
+        }
+        try {
+            return outcome.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Your order is still being placed, please check your orders shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the order");
+        }
+    }
+
+    void expire() {
+        long now = clock.getAsLong();
+        entries.values().removeIf(entry -> {
+            if (entry.isExpired(now)) {
+                expirations.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static String entryKey(long userId, String key) {
+        return userId + ":" + key;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("liveKeys", entries.size());
+        stats.put("checkouts", checkouts.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("waits", waits.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private static final class Entry {
+
+        private final long deadlineNanos;
+        private final CompletableFuture<Long> outcome = new CompletableFuture<>();
+
+        Entry(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        // A checkout still running is never expired, so its duplicates cannot start another.
+        boolean isExpired(long now) {
+            return now - deadlineNanos > 0 && outcome.isDone();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous checkout, switched on with {@code app.orders.async.enabled}: a checkout is queued
+ * and answered with a ticket straight away, and a worker (or {@code workers} of them) places the
+ * queued orders in batches of up to {@code max-batch}, each batch one transaction on one
+ * connection. Under load this keeps checkout from holding a pooled connection per shopper for
+ * the whole order build.
+ *
+ * <p>A batch is all or nothing, so when one of its orders fails (say, out of stock) the batch is
+ * rolled back and its orders placed again one at a time, each with its own outcome. A batch never
+ * holds two checkouts of the same shopper, as the second would still see the cart the first one
+ * is about to clear.
+ *
+ * <p>Tickets are {@link CheckoutKeys} keys: a checkout's idempotency key, or a random one, so a
+ * resubmitted checkout gets the ticket of the first and the outcome is polled through
+ * {@link CheckoutKeys#find}.
+ */
+@Component
+public class CheckoutPipeline implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutPipeline.class);
+
+    @Value("${app.orders.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.orders.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.orders.async.workers:1}")
+    private int workers;
+
+    @Value("${app.orders.async.max-batch:20}")
+    private int maxBatch;
+
+    @Value("${app.orders.async.linger-ms:10}")
+    private long lingerMillis;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CheckoutKeys checkoutKeys;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private BlockingQueue<PendingCheckout> queue;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedOrders = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong splitBatches = new AtomicLong();
+    private final AtomicLong placed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        open();
+        running = true;
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "checkout-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    void open() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a checkout of the user's cart and returns its ticket. A key already used for a
+     * checkout that is queued, running or placed returns the same ticket without queueing again.
+     */
+    public String submit(User user, String idempotencyKey) {
+        String ticket = idempotencyKey == null || idempotencyKey.isBlank()
+                ? UUID.randomUUID().toString() : idempotencyKey;
+        if (checkoutKeys.claim(user.getId(), ticket) != null) {
+            return ticket;
+        }
+        if (!queue.offer(new PendingCheckout(user, ticket))) {
+            rejected.incrementAndGet();
+            RuntimeException busy = new RuntimeException("Checkout is busy, please try again in a moment");
+            checkoutKeys.fail(user.getId(), ticket, busy);
+            throw busy;
+        }
+        submitted.incrementAndGet();
+        return ticket;
+    }
+
+    private void work() {
+        List<PendingCheckout> drained = new ArrayList<>();
+        while (running) {
+            try {
+                placeNext(drained, 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // place() settles every checkout it was given; this is only a safety net.
+                log.error("Checkout worker error", e);
+            }
+        }
+    }
+
+    /**
+     * Places one batch made of what is left in {@code drained} from the last call and what is
+     * queued, waiting up to {@code waitMillis} for a checkout if there is neither. Once it has one,
+     * it gives others up to {@code linger-ms} to join the batch.
+     */
+    void placeNext(List<PendingCheckout> drained, long waitMillis) throws InterruptedException {
+        if (drained.isEmpty()) {
+            PendingCheckout first = queue.poll(waitMillis, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return;
+            }
+            drained.add(first);
+        }
+        queue.drainTo(drained, maxBatch - drained.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (drained.size() < maxBatch) {
+            PendingCheckout next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            drained.add(next);
+            queue.drainTo(drained, maxBatch - drained.size());
+        }
+        place(nextBatch(drained));
+    }
+
+    /**
+     * Removes and returns the drained checkouts of distinct users, leaving the rest for the next batch.
+     */
+    private static List<PendingCheckout> nextBatch(List<PendingCheckout> drained) {
+        List<PendingCheckout> batch = new ArrayList<>();
+        Set<Long> userIds = new HashSet<>();
+        for (Iterator<PendingCheckout> it = drained.iterator(); it.hasNext(); ) {
+            PendingCheckout checkout = it.next();
+            if (userIds.add(checkout.user.getId())) {
+                batch.add(checkout);
+                it.remove();
+            }
+        }
+        return batch;
+    }
+
+    private void place(List<PendingCheckout> batch) {
+        batches.incrementAndGet();
+        batchedOrders.addAndGet(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        if (batch.size() == 1) {
+            placeAlone(batch.get(0));
+            return;
+        }
+        List<Long> orderIds;
+        try {
+            orderIds = transactionTemplate.execute(status -> {
+                List<Long> ids = new ArrayList<>();
+                for (PendingCheckout checkout : batch) {
+                    ids.add(orderService.createOrderFromCart(checkout.user).getId());
+                }
+                return ids;
+            });
+        } catch (RuntimeException e) {
+            splitBatches.incrementAndGet();
+            batch.forEach(this::placeAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            settled(batch.get(i), orderIds.get(i));
+        }
+    }
+
+    private void placeAlone(PendingCheckout checkout) {
+        Order order;
+        try {
+            order = orderService.createOrderFromCart(checkout.user);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            checkoutKeys.fail(checkout.user.getId(), checkout.ticket, e);
+            return;
+        }
+        settled(checkout, order.getId());
+    }
+
+    private void settled(PendingCheckout checkout, long orderId) {
+        placed.incrementAndGet();
+        checkoutKeys.complete(checkout.user.getId(), checkout.ticket, orderId);
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", queue != null ? queue.size() : 0);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("workers", workers);
+        stats.put("maxBatch", maxBatch);
+        stats.put("lingerMillis", lingerMillis);
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount > 0 ? (double) batchedOrders.get() / batchCount : 0.0);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("splitBatches", splitBatches.get());
+        stats.put("placed", placed.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    static final class PendingCheckout {
+
+        private final User user;
+        private final String ticket;
+
+        PendingCheckout(User user, String ticket) {
+            this.user = user;
+            this.ticket = ticket;
+        }
+    }
+}
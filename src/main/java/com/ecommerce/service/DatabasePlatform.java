@@ -0,0 +1,36 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Which database we are talking to, for the few native statements (upserts) that PostgreSQL and
+ * H2 spell differently. Looked up once from the connection metadata.
+ */
+@Component
+public class DatabasePlatform {
+
+    @Autowired
+    private DataSource dataSource;
+
+    private volatile Boolean h2;
+
+    public boolean isH2() {
+        Boolean h2 = this.h2;
+        if (h2 == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                h2 = "H2".equals(product);
+            } catch (MetaDataAccessException e) {
+                throw new RuntimeException("Could not determine database type", e);
+            }
+            this.h2 = h2;
+        }
+        return h2;
+    }
+}
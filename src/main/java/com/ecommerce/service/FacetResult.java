@@ -0,0 +1,99 @@
+package com.ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Output of one {@link ProductFacetIndex} pass: the ids for the requested page, in display order,
+ * plus facet counts for the sidebar.
+ */
+public class FacetResult {
+
+    private final List<Long> ids;
+    private final boolean more;
+    private final boolean afterCursor;
+    private final boolean beforeCursor;
+    private final int totalMatches;
+    private final List<PriceBucket> priceBuckets;
+    private final int inStockCount;
+    private final int outOfStockCount;
+    private final long elapsedNanos;
+
+    public FacetResult(List<Long> ids, boolean more, boolean afterCursor, boolean beforeCursor, int totalMatches,
+                       List<PriceBucket> priceBuckets, int inStockCount, int outOfStockCount, long elapsedNanos) {
+        this.ids = ids;
+        this.more = more;
+        this.afterCursor = afterCursor;
+        this.beforeCursor = beforeCursor;
+        this.totalMatches = totalMatches;
+        this.priceBuckets = priceBuckets;
+        this.inStockCount = inStockCount;
+        this.outOfStockCount = outOfStockCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+
+    public boolean isAfterCursor() {
+        return afterCursor;
+    }
+
+    public boolean isBeforeCursor() {
+        return beforeCursor;
+    }
+
+    public int getTotalMatches() {
+        return totalMatches;
+    }
+
+    public List<PriceBucket> getPriceBuckets() {
+        return priceBuckets;
+    }
+
+    public int getInStockCount() {
+        return inStockCount;
+    }
+
+    public int getOutOfStockCount() {
+        return outOfStockCount;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedNanos / 1_000;
+    }
+
+    public static class PriceBucket {
+
+        private final BigDecimal min;
+        private final BigDecimal max;
+        private final int count;
+
+        public PriceBucket(BigDecimal min, BigDecimal max, int count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() {
+            return min;
+        }
+
+        public BigDecimal getMax() {
+            return max;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public String getLabel() {
+            return max == null ? "$" + min.toPlainString() + "+" : "$" + min.toPlainString() + " - $" + max.toPlainString();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock of "hot" products, split across {@code product_stock_slots} rows so that a flash sale's
+ * checkouts each update one of N rows instead of all queueing for the lock on the product's row.
+ * A checkout takes its units from a randomly chosen slot and tries the others in turn if that
+ * one is short; only when no single slot can cover the line does it lock them all and take the
+ * units from several. {@link HotStockRebalancer} evens the slots out again and publishes their
+ * sum as the product's {@code stock_quantity}, which is what every other reader sees.
+ *
+ * <p>While a product is hot its row's {@code stock_slots} is set, and checkout's guarded
+ * decrement of the row matches nothing, so a checkout that did not know yet cannot take stock
+ * the slots no longer count. Units held for other carts are guarded per slot by each slot's
+ * share of them, and exactly on the slow path. All writes join the caller's transaction, and
+ * whatever locks both takes the product row before the slots.
+ */
+@Component
+public class HotStockCounters implements SmartInitializingSingleton {
+
+    /** Outcome of {@link #take}. */
+    public enum Take { TAKEN, SHORT, NOT_SPLIT }
+
+    private static final String LOCK_PRODUCT_SQL = "SELECT stock_quantity, stock_slots FROM products WHERE id = ? FOR UPDATE";
+    private static final String LOCK_SLOTS_SQL = "SELECT quantity FROM product_stock_slots " +
+            "WHERE product_id = ? ORDER BY slot FOR UPDATE";
+    private static final String TAKE_SQL = "UPDATE product_stock_slots SET quantity = quantity - ? " +
+            "WHERE product_id = ? AND slot = ? AND quantity >= ?";
+    private static final String ADD_SQL = "UPDATE product_stock_slots SET quantity = quantity + ? " +
+            "WHERE product_id = ? AND slot = ?";
+    private static final String SET_SQL = "UPDATE product_stock_slots SET quantity = ? WHERE product_id = ? AND slot = ?";
+    private static final String INSERT_SQL = "INSERT INTO product_stock_slots (product_id, slot, quantity) VALUES (?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM product_stock_slots WHERE product_id = ?";
+    private static final String MARK_SQL = "UPDATE products SET stock_slots = ? WHERE id = ?";
+    private static final String UNMARK_SQL = "UPDATE products SET stock_slots = 0, stock_quantity = ?, " +
+            "version = version + 1, updated_at = ? WHERE id = ?";
+    private static final String PUBLISH_SQL = "UPDATE products SET stock_quantity = ?, version = version + 1, " +
+            "updated_at = ? WHERE id = ? AND stock_slots > 0 AND stock_quantity <> ?";
+    // The slots table only has rows for hot products, so this stays cheap however big the catalog.
+    private static final String HOT_PRODUCTS_SQL = "SELECT product_id, COUNT(*) FROM product_stock_slots GROUP BY product_id";
+
+    @Value("${app.stock.hot.max-slots:32}")
+    private int maxSlots;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Slot count per hot product, as far as this instance knows. */
+    private final Map<Long, Integer> hot = new ConcurrentHashMap<>();
+
+    private final AtomicLong takes = new AtomicLong();
+    private final AtomicLong slotMisses = new AtomicLong();
+    private final AtomicLong spreadTakes = new AtomicLong();
+    private final AtomicLong shortTakes = new AtomicLong();
+    private final AtomicLong rebalances = new AtomicLong();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    /**
+     * Re-reads which products are hot, so that one switched by another instance is picked up.
+     */
+    public void reload() {
+        Map<Long, Integer> current = new LinkedHashMap<>();
+        jdbcTemplate.query(HOT_PRODUCTS_SQL, rs -> {
+            current.put(rs.getLong(1), rs.getInt(2));
+        });
+        hot.keySet().retainAll(current.keySet());
+        hot.putAll(current);
+    }
+
+    public boolean isHot(Long productId) {
+        return hot.containsKey(productId);
+    }
+
+    /**
+     * Records a hot product seen on its row, for a checkout that found out the hard way.
+     */
+    public void learn(Long productId, int slots) {
+        if (slots > 0) {
+            hot.put(productId, slots);
+        }
+    }
+
+    public List<Long> getHotProductIds() {
+        return new ArrayList<>(hot.keySet());
+    }
+
+    public int getSlots(Long productId) {
+        return hot.getOrDefault(productId, 0);
+    }
+
+    /**
+     * Moves the product's stock into {@code slots} counters, or re-splits it if the product is
+     * already hot. The product row stays locked until the caller commits, so no sale through
+     * the row can slip in between.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void split(Long productId, int slots) {
+        if (slots < 2 || slots > maxSlots) {
+            throw new RuntimeException("A hot product needs between 2 and " + maxSlots + " stock counters");
+        }
+        int[] row = lockProduct(productId);
+        if (row == null) {
+            throw new RuntimeException("Product not found");
+        }
+        int total = row[1] > 0 ? sum(lockSlots(productId)) : row[0];
+        jdbcTemplate.update(DELETE_SQL, productId);
+        int[] quantities = spread(total, slots);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int slot = 0; slot < slots; slot++) {
+            inserts.add(new Object[]{productId, slot, quantities[slot]});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        jdbcTemplate.update(MARK_SQL, slots, productId);
+        afterCommit(() -> hot.put(productId, slots));
+    }
+
+    /**
+     * Folds the counters back into the product row's {@code stock_quantity} and drops them.
+     * Returns false if the product was not hot.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean merge(Long productId) {
+        if (!isSplit(productId)) {
+            return false;
+        }
+        int total = sum(lockSlots(productId));
+        jdbcTemplate.update(DELETE_SQL, productId);
+        jdbcTemplate.update(UNMARK_SQL, total, now(), productId);
+        afterCommit(() -> hot.remove(productId));
+        return true;
+    }
+
+    /**
+     * Takes {@code quantity} units, leaving at least {@code reserved} across the slots. Nothing
+     * is taken unless the result is {@link Take#TAKEN}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Take take(Long productId, int quantity, int reserved) {
+        Integer slots = hot.get(productId);
+        if (slots == null) {
+            return Take.NOT_SPLIT;
+        }
+        takes.incrementAndGet();
+        int reservedShare = (reserved + slots - 1) / slots;
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            int slot = (start + i) % slots;
+            if (jdbcTemplate.update(TAKE_SQL, quantity, productId, slot, quantity + reservedShare) == 1) {
+                return Take.TAKEN;
+            }
+            slotMisses.incrementAndGet();
+        }
+
+        // No single slot covers the line: lock them all, in slot order, and take from several.
+        int[] quantities = lockSlots(productId);
+        if (quantities.length == 0) {
+            // Merged back into the product row since we looked.
+            return Take.NOT_SPLIT;
+        }
+        if (sum(quantities) - quantity < reserved) {
+            shortTakes.incrementAndGet();
+            return Take.SHORT;
+        }
+        List<Object[]> updates = new ArrayList<>();
+        int remaining = quantity;
+        for (int slot = 0; slot < quantities.length && remaining > 0; slot++) {
+            int taken = Math.min(quantities[slot], remaining);
+            if (taken > 0) {
+                updates.add(new Object[]{quantities[slot] - taken, productId, slot});
+                remaining -= taken;
+            }
+        }
+        jdbcTemplate.batchUpdate(SET_SQL, updates);
+        spreadTakes.incrementAndGet();
+        return Take.TAKEN;
+    }
+
+    /**
+     * Puts units back, as when an order is cancelled, into one of the slots. Returns false if
+     * the product is not hot.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean add(Long productId, int quantity) {
+        Integer slots = hot.get(productId);
+        if (slots == null) {
+            return false;
+        }
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        return jdbcTemplate.update(ADD_SQL, quantity, productId, slot) == 1;
+    }
+
+    /**
+     * Replaces the stock held across the slots, as when an admin sets it. Returns false if the
+     * product is not hot.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean set(Long productId, int stock) {
+        if (!isHot(productId) || !isSplit(productId)) {
+            return false;
+        }
+        int[] current = lockSlots(productId);
+        write(productId, current, spread(stock, current.length));
+        return true;
+    }
+
+    /**
+     * Moves the stock held across the slots by {@code delta}, as when an admin edits it, so units
+     * taken since the edit form was loaded stay taken; the stock never drops below zero. Called
+     * once the edit has committed, hence a transaction of its own. Returns false if the product
+     * is not hot.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean adjust(Long productId, int delta) {
+        if (!isSplit(productId)) {
+            return false;
+        }
+        int[] current = lockSlots(productId);
+        write(productId, current, spread(Math.max(sum(current) + delta, 0), current.length));
+        return true;
+    }
+
+    /**
+     * Evens the slots out, so the fast path keeps finding one that can cover a line, and writes
+     * their sum to the product row if it moved. Returns whether the row changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean rebalance(Long productId) {
+        if (!isSplit(productId)) {
+            hot.remove(productId);
+            return false;
+        }
+        int[] current = lockSlots(productId);
+        int total = sum(current);
+        if (write(productId, current, spread(total, current.length))) {
+            rebalances.incrementAndGet();
+        }
+        return jdbcTemplate.update(PUBLISH_SQL, total, now(), productId, total) == 1;
+    }
+
+    /**
+     * Locks the product row and tells whether it is still hot; false too if it was deleted.
+     */
+    private boolean isSplit(Long productId) {
+        int[] row = lockProduct(productId);
+        return row != null && row[1] > 0;
+    }
+
+    private int[] lockProduct(Long productId) {
+        List<int[]> rows = jdbcTemplate.query(LOCK_PRODUCT_SQL,
+                (rs, rowNum) -> new int[]{rs.getInt("stock_quantity"), rs.getInt("stock_slots")}, productId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private int[] lockSlots(Long productId) {
+        return jdbcTemplate.queryForList(LOCK_SLOTS_SQL, Integer.class, productId).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private boolean write(Long productId, int[] current, int[] target) {
+        List<Object[]> updates = new ArrayList<>();
+        for (int slot = 0; slot < current.length; slot++) {
+            if (current[slot] != target[slot]) {
+                updates.add(new Object[]{target[slot], productId, slot});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_SQL, updates);
+        }
+        return !updates.isEmpty();
+    }
+
+    static int[] spread(int total, int slots) {
+        int[] quantities = new int[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            quantities[slot] = total / slots + (slot < total % slots ? 1 : 0);
+        }
+        return quantities;
+    }
+
+    private static int sum(int[] quantities) {
+        int total = 0;
+        for (int quantity : quantities) {
+            total += quantity;
+        }
+        return total;
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hotProducts", new LinkedHashMap<>(hot));
+        stats.put("takes", takes.get());
+        stats.put("slotMisses", slotMisses.get());
+        stats.put("spreadTakes", spreadTakes.get());
+        stats.put("shortTakes", shortTakes.get());
+        stats.put("rebalances", rebalances.get());
+        return stats;
+    }
+}
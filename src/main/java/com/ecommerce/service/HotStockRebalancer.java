@@ -0,0 +1,84 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every {@code app.stock.hot.rebalance-ms}, evens out each hot product's stock counters and
+ * publishes their sum as the product's stock, so listings and product pages trail the sales
+ * by at most one interval. Each product is its own short transaction.
+ */
+@Component
+public class HotStockRebalancer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockRebalancer.class);
+
+    @Value("${app.stock.hot.rebalance-ms:2000}")
+    private long rebalanceMillis;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private HotStockCounters hotStock;
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-stock-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebalanceQuietly, rebalanceMillis, rebalanceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void rebalance() {
+        hotStock.reload();
+        for (Long productId : hotStock.getHotProductIds()) {
+            productService.rebalanceHotStock(productId);
+        }
+        runs.incrementAndGet();
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (RuntimeException e) {
+            // Counted in failures; the next run tries again.
+            failures.incrementAndGet();
+            log.warn("Hot stock rebalance failed", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(hotStock.getStats());
+        stats.put("rebalanceMillis", rebalanceMillis);
+        stats.put("runs", runs.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs a read-modify-write of versioned entities in its own transaction and runs it again,
+ * a bounded number of times, if another transaction changed one of them first. Only the
+ * outermost call retries: a conflict dooms the whole transaction, so when one is already
+ * active the work simply joins it and the conflict goes up to whoever started it.
+ *
+ * <p>Methods using this are {@code @Transactional(propagation = SUPPORTS)} so that the service
+ * proxy does not open the transaction before the retry loop gets to.
+ */
+@Component
+public class OptimisticRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           @Value("${app.concurrency.max-attempts:5}") int maxAttempts,
+                           @Value("${app.concurrency.backoff-ms:10}") long backoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+    }
+
+    public void run(String operation, Runnable work) {
+        execute(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        Counters operationCounters = counters.computeIfAbsent(operation, name -> new Counters());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                operationCounters.conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    operationCounters.exhausted.incrementAndGet();
+                    throw new RuntimeException("This was changed by someone else at the same time, please try again", e);
+                }
+                operationCounters.retries.incrementAndGet();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        if (backoffMillis <= 0) {
+            return;
+        }
+        // Jittered so that the transactions that collided do not collide again.
+        long delay = backoffMillis * attempt + ThreadLocalRandom.current().nextLong(backoffMillis);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxAttempts", maxAttempts);
+        counters.forEach((operation, operationCounters) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("conflicts", operationCounters.conflicts.get());
+            entry.put("retries", operationCounters.retries.get());
+            entry.put("exhausted", operationCounters.exhausted.get());
+            stats.put(operation, entry);
+        });
+        return stats;
+    }
+
+    private static final class Counters {
+
+        private final AtomicLong conflicts = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong exhausted = new AtomicLong();
+    }
+}
@@ -5,12 +5,17 @@ import com.ecommerce.repository.OrderRepository;
 import com.ecommerce.repository.OrderItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Transactional
@@ -28,60 +33,112 @@ public class OrderService {
     @Autowired
     private ProductService productService;
 
-    public Order createOrderFromCart(User user) {
-        List<Cart> cartItems = cartService.getCartItems(user);
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
 
-        if (cartItems.isEmpty()) {
-            throw new RuntimeException("Cart is empty");
+    @Autowired
+    private CheckoutKeys checkoutKeys;
+
+    /**
+     * Checks out the user's cart once per idempotency key: a repeated key gets the order the
+     * first submission placed, without checking out again. A blank key always checks out.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Order createOrderFromCart(User user, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createOrderFromCart(user);
+        }
+        CompletableFuture<Long> earlier = checkoutKeys.claim(user.getId(), idempotencyKey);
+        if (earlier != null) {
+            long orderId = checkoutKeys.await(earlier);
+            return orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
+        }
+        try {
+            Order order = createOrderFromCart(user);
+            checkoutKeys.complete(user.getId(), idempotencyKey, order.getId());
+            return order;
+        } catch (RuntimeException e) {
+            checkoutKeys.fail(user.getId(), idempotencyKey, e);
+            throw e;
         }
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Order createOrderFromCart(User user) {
+        return optimisticRetry.execute("order.create", () -> {
+            List<Cart> cartItems = cartService.getCartItems(user);
 
-        for (Cart cartItem : cartItems) {
-            if (!productService.hasStock(cartItem.getProduct().getId(), cartItem.getQuantity())) {
-                throw new RuntimeException("Insufficient stock for product: " + cartItem.getProduct().getName());
+            if (cartItems.isEmpty()) {
+                throw new RuntimeException("Cart is empty");
             }
-        }
 
-        Order order = new Order();
-        order.setUser(user);
-        order.setStatus(Order.OrderStatus.PENDING);
+            Order order = new Order();
+            order.setUser(user);
+            order.setStatus(Order.OrderStatus.PENDING);
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            List<StockDecrement> decrements = new ArrayList<>();
 
-        for (Cart cartItem : cartItems) {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(cartItem.getProduct());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(cartItem.getProduct().getPrice());
+            for (Cart cartItem : cartItems) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrder(order);
+                orderItem.setProduct(cartItem.getProduct());
+                orderItem.setQuantity(cartItem.getQuantity());
+                orderItem.setPrice(cartItem.getProduct().getPrice());
 
-            order.addOrderItem(orderItem);
-            totalAmount = totalAmount.add(orderItem.getSubtotal());
+                order.addOrderItem(orderItem);
+                totalAmount = totalAmount.add(orderItem.getSubtotal());
 
-            productService.reduceStock(cartItem.getProduct().getId(), cartItem.getQuantity());
-        }
+                // Units other shoppers still hold in their carts are not for sale to this one.
+                int heldByOthers = stockReservations.heldByOthers(user.getId(), cartItem.getProduct().getId());
+                decrements.add(new StockDecrement(cartItem.getProduct(), cartItem.getQuantity(), heldByOthers));
+            }
+
+            // Checked and taken in the same statements, so no other checkout can get in between.
+            long userId = user.getId();
+            stockReservations.beginCheckout(userId);
+            Order savedOrder;
+            try {
+                productService.reduceStock(decrements);
 
-        order.setTotalAmount(totalAmount);
-        Order savedOrder = orderRepository.save(order);
+                order.setTotalAmount(totalAmount);
+                savedOrder = orderRepository.save(order);
 
-        cartService.clearCart(user);
+                cartService.clearCart(user);
+            } catch (RuntimeException e) {
+                stockReservations.endCheckout(userId);
+                throw e;
+            }
+            // Registered after clearCart's, so on commit the holds are released before they count again.
+            afterCompletion(() -> stockReservations.endCheckout(userId));
 
-        return savedOrder;
+            return savedOrder;
+        });
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Order confirmOrder(Long orderId) {
-        Order order = findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        return optimisticRetry.execute("order.confirm", () -> {
+            Order order = findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        order.setStatus(Order.OrderStatus.CONFIRMED);
-        return orderRepository.save(order);
+            order.setStatus(Order.OrderStatus.CONFIRMED);
+            return orderRepository.save(order);
+        });
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        Order order = findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        return optimisticRetry.execute("order.updateStatus", () -> {
+            Order order = findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        order.setStatus(status);
-        return orderRepository.save(order);
+            order.setStatus(status);
+            return orderRepository.save(order);
+        });
     }
 
     public Optional<Order> findById(Long id) {
@@ -129,21 +186,24 @@ public class OrderService {
         return spent != null ? spent : 0.0;
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void cancelOrder(Long orderId) {
-        Order order = findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+        optimisticRetry.run("order.cancel", () -> {
+            Order order = findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        if (order.getStatus() == Order.OrderStatus.SHIPPED ||
-            order.getStatus() == Order.OrderStatus.DELIVERED) {
-            throw new RuntimeException("Cannot cancel order that has been shipped or delivered");
-        }
+            if (order.getStatus() == Order.OrderStatus.SHIPPED ||
+                order.getStatus() == Order.OrderStatus.DELIVERED) {
+                throw new RuntimeException("Cannot cancel order that has been shipped or delivered");
+            }
 
-        for (OrderItem orderItem : order.getOrderItems()) {
-            productService.addStock(orderItem.getProduct().getId(), orderItem.getQuantity());
-        }
+            for (OrderItem orderItem : order.getOrderItems()) {
+                productService.addStock(orderItem.getProduct().getId(), orderItem.getQuantity());
+            }
 
-        order.setStatus(Order.OrderStatus.CANCELLED);
-        orderRepository.save(order);
+            order.setStatus(Order.OrderStatus.CANCELLED);
+            orderRepository.save(order);
+        });
     }
 
     public List<OrderItem> getOrderItems(Long orderId) {
@@ -161,4 +221,17 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         return orderItemRepository.countByProduct(product);
     }
-}
\ No newline at end of file
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the product catalog. Holds immutable {@link ProductSnapshot}s by id
+ * plus the in-stock listing, and is kept current by {@link ProductService} after each write
+ * commits, so browse traffic does not have to hit the products table.
+ */
+@Component
+public class ProductCatalogCache {
+
+    @Value("${app.cache.enabled:true}")
+    private boolean enabled = true;
+
+    private final Map<Long, ProductSnapshot> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, ProductSnapshot> inStock = new ConcurrentSkipListMap<>();
+    private final Object inStockLock = new Object();
+    private volatile boolean inStockLoaded;
+    private volatile List<ProductSnapshot> inStockView;
+
+    // Bumped on every write so a load racing with a write never re-inserts stale rows.
+    private final AtomicLong generation = new AtomicLong();
+    // Keeps versions handed out by a restarted instance from matching old ones.
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong inStockHits = new AtomicLong();
+    private final AtomicLong inStockLoads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong lastReloadNanos = new AtomicLong();
+    private final AtomicLong totalReloadNanos = new AtomicLong();
+
+    public Optional<ProductSnapshot> get(Long id, Function<Long, Optional<Product>> loader) {
+        if (!enabled) {
+            return loader.apply(id).map(ProductSnapshot::of);
+        }
+
+        ProductSnapshot cached = byId.get(id);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(cached);
+        }
+
+        misses.incrementAndGet();
+        long observed = generation.get();
+        Optional<ProductSnapshot> loaded = loader.apply(id).map(ProductSnapshot::of);
+        if (loaded.isPresent() && generation.get() == observed) {
+            byId.putIfAbsent(id, loaded.get());
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the cached copy if there is one, without loading or counting a miss.
+     */
+    public Optional<ProductSnapshot> peek(Long id) {
+        return enabled ? Optional.ofNullable(byId.get(id)) : Optional.empty();
+    }
+
+    /**
+     * Resolves several ids at once, loading all misses in a single call. Results keep the order
+     * of {@code ids}; ids that no longer exist are skipped.
+     */
+    public List<ProductSnapshot> getAll(List<Long> ids, Function<List<Long>, List<Product>> loader) {
+        Map<Long, ProductSnapshot> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            ProductSnapshot cached = enabled ? byId.get(id) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.addAndGet(found.size());
+        misses.addAndGet(missing.size());
+
+        if (!missing.isEmpty()) {
+            long observed = generation.get();
+            for (Product product : loader.apply(missing)) {
+                ProductSnapshot snapshot = ProductSnapshot.of(product);
+                found.put(snapshot.getId(), snapshot);
+                if (enabled && generation.get() == observed) {
+                    byId.putIfAbsent(snapshot.getId(), snapshot);
+                }
+            }
+        }
+
+        List<ProductSnapshot> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductSnapshot snapshot = found.get(id);
+            if (snapshot != null) {
+                result.add(snapshot);
+            }
+        }
+        return result;
+    }
+
+    public List<ProductSnapshot> getInStock(Supplier<List<Product>> loader) {
+        if (!enabled) {
+            return loader.get().stream().map(ProductSnapshot::of).toList();
+        }
+
+        List<ProductSnapshot> view = inStockView;
+        if (view != null) {
+            inStockHits.incrementAndGet();
+            return view;
+        }
+
+        synchronized (inStockLock) {
+            if (!inStockLoaded) {
+                long start = System.nanoTime();
+                long observed = generation.get();
+                for (Product product : loader.get()) {
+                    ProductSnapshot snapshot = ProductSnapshot.of(product);
+                    inStock.put(snapshot.getId(), snapshot);
+                    if (generation.get() == observed) {
+                        byId.putIfAbsent(snapshot.getId(), snapshot);
+                    }
+                }
+                inStockLoaded = true;
+                recordReload(System.nanoTime() - start);
+            }
+            if (inStockView == null) {
+                inStockView = Collections.unmodifiableList(new ArrayList<>(inStock.values()));
+            }
+            return inStockView;
+        }
+    }
+
+    /**
+     * Replaces the cached copy of a product that was just written and patches the in-stock view
+     * in place, without going back to the database.
+     */
+    public void put(ProductSnapshot snapshot) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        byId.put(snapshot.getId(), snapshot);
+
+        synchronized (inStockLock) {
+            if (inStockLoaded) {
+                if (snapshot.isInStock()) {
+                    inStock.put(snapshot.getId(), snapshot);
+                } else {
+                    inStock.remove(snapshot.getId());
+                }
+                inStockView = null;
+            }
+        }
+    }
+
+    public void evict(Long id) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        byId.remove(id);
+
+        synchronized (inStockLock) {
+            if (inStock.remove(id) != null) {
+                inStockView = null;
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        byId.clear();
+
+        synchronized (inStockLock) {
+            inStock.clear();
+            inStockLoaded = false;
+            inStockView = null;
+        }
+    }
+
+    /**
+     * Version of the catalog as this instance has seen it. It changes with every committed product
+     * write, delete and reload, because each of them reaches the cache, and it never queries the database.
+     */
+    public String getVersion() {
+        return epoch + "-" + generation.get();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", byId.size());
+        stats.put("inStockSize", inStock.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("inStockHits", inStockHits.get());
+        stats.put("inStockLoads", inStockLoads.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("lastReloadMillis", lastReloadNanos.get() / 1_000_000.0);
+        stats.put("totalReloadMillis", totalReloadNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private void recordReload(long nanos) {
+        inStockLoads.incrementAndGet();
+        lastReloadNanos.set(nanos);
+        totalReloadNanos.addAndGet(nanos);
+    }
+}
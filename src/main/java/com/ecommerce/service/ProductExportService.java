@@ -0,0 +1,198 @@
+package com.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog export in the same CSV / JSON-lines layout the import reads. Rows are read through
+ * a forward-only JDBC cursor with a bounded fetch size and written to the output stream as they
+ * arrive, so memory use is the same for ten products or ten million and no entities are
+ * loaded into a persistence context.
+ */
+@Service
+public class ProductExportService {
+
+    static final int FETCH_SIZE = 1_000;
+
+    private static final String SELECT_SQL = "SELECT id, name, description, price, stock_quantity, image_url, " +
+            "created_at, updated_at FROM products ORDER BY id";
+
+    private static final String CSV_HEADER = "id,name,description,price,stock_quantity,image_url,created_at,updated_at";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong exports = new AtomicLong();
+    private final AtomicLong rowsExported = new AtomicLong();
+    private volatile long lastRows;
+    private volatile long lastMillis;
+
+    /**
+     * Writes every product to {@code output} and returns the number of rows written. The stream
+     * is flushed but not closed.
+     */
+    public long export(OutputStream output, ProductFileFormat format) throws IOException {
+        JdbcTemplate cursor = new JdbcTemplate(dataSource);
+        cursor.setFetchSize(FETCH_SIZE);
+
+        // PostgreSQL only streams with a cursor inside a transaction; otherwise it buffers the whole result.
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == ProductFileFormat.CSV ? new CsvRowWriter(writer) : new JsonLinesRowWriter(writer);
+        AtomicLong count = new AtomicLong();
+        try {
+            transaction.executeWithoutResult(status -> cursor.query(SELECT_SQL, (ResultSet rs) -> {
+                try {
+                    rows.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count.incrementAndGet();
+            }));
+            rows.finish();
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        lastRows = count.get();
+        lastMillis = (System.nanoTime() - start) / 1_000_000;
+        exports.incrementAndGet();
+        rowsExported.addAndGet(lastRows);
+        return lastRows;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("exports", exports.get());
+        stats.put("rowsExported", rowsExported.get());
+        stats.put("lastRows", lastRows);
+        stats.put("lastMillis", lastMillis);
+        return stats;
+    }
+
+    private interface RowWriter {
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong("id")));
+            writer.write(',');
+            field(rs.getString("name"));
+            writer.write(',');
+            field(rs.getString("description"));
+            writer.write(',');
+            writer.write(rs.getBigDecimal("price").toPlainString());
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt("stock_quantity")));
+            writer.write(',');
+            field(rs.getString("image_url"));
+            writer.write(',');
+            field(timestamp(rs.getTimestamp("created_at")));
+            writer.write(',');
+            field(timestamp(rs.getTimestamp("updated_at")));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        private void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private final class JsonLinesRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator json;
+
+        JsonLinesRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Each row is flushed into the buffered writer only, not through to the socket.
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("name", rs.getString("name"));
+            json.writeStringField("description", rs.getString("description"));
+            json.writeNumberField("price", rs.getBigDecimal("price"));
+            json.writeNumberField("stockQuantity", rs.getInt("stock_quantity"));
+            json.writeStringField("imageUrl", rs.getString("image_url"));
+            json.writeStringField("createdAt", timestamp(rs.getTimestamp("created_at")));
+            json.writeStringField("updatedAt", timestamp(rs.getTimestamp("updated_at")));
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.close();
+        }
+    }
+
+    private static String timestamp(Timestamp value) {
+        return value != null ? value.toLocalDateTime().toString() : null;
+    }
+}
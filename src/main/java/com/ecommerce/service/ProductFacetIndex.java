@@ -0,0 +1,277 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Columnar in-memory copy of the catalog (price, stock, created_at) used to filter listings and
+ * count facets without a SQL round trip per filter combination. A query is one pass over the
+ * rows in display order that both collects the requested page of ids and fills the price-bucket
+ * and stock facet counts; each facet is counted with every filter applied except its own.
+ */
+@Component
+public class ProductFacetIndex {
+
+    // Lower bounds of the price buckets, in cents; the last bucket is open-ended.
+    private static final long[] BUCKET_BOUNDS = {0, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000};
+
+    private final Map<Long, Row> rows = new HashMap<>();
+    private final Object lock = new Object();
+    private volatile Columns columns;
+    private volatile boolean built;
+    private volatile boolean dirty;
+
+    public FacetResult query(CatalogQuery query, boolean collectIds, Supplier<List<Product>> corpus) {
+        long start = System.nanoTime();
+        Columns data = current(corpus);
+
+        CatalogQuery.Sort sort = query.getSort();
+        int[] order = sort == CatalogQuery.Sort.PRICE ? data.priceOrder : data.newestOrder;
+        long minCents = query.getMinPrice() != null ? toCents(query.getMinPrice()) : Long.MIN_VALUE;
+        long maxCents = query.getMaxPrice() != null ? toCents(query.getMaxPrice()) : Long.MAX_VALUE;
+        boolean inStockOnly = query.isInStockOnly();
+
+        int size = query.getPageSize();
+        ProductPage.Cursor after = collectIds ? ProductPage.decode(query.getAfter(), sort) : null;
+        ProductPage.Cursor before = collectIds && after == null ? ProductPage.decode(query.getBefore(), sort) : null;
+        long afterKey = after != null ? sortKey(after, sort) : 0;
+        long beforeKey = before != null ? sortKey(before, sort) : 0;
+
+        int[] bucketCounts = new int[BUCKET_BOUNDS.length];
+        int inStockCount = 0;
+        int outOfStockCount = 0;
+        int matches = 0;
+        List<Long> forward = new ArrayList<>();
+        ArrayDeque<Long> backward = new ArrayDeque<>();
+
+        for (int row : order) {
+            long cents = data.priceCents[row];
+            boolean inStock = data.stock[row] > 0;
+            boolean priceOk = cents >= minCents && cents <= maxCents;
+            boolean stockOk = !inStockOnly || inStock;
+
+            if (stockOk) {
+                bucketCounts[bucketOf(cents)]++;
+            }
+            if (priceOk) {
+                if (inStock) {
+                    inStockCount++;
+                } else {
+                    outOfStockCount++;
+                }
+            }
+            if (!priceOk || !stockOk) {
+                continue;
+            }
+            matches++;
+            if (!collectIds) {
+                continue;
+            }
+
+            long key = sort == CatalogQuery.Sort.PRICE ? cents : data.createdMicros[row];
+            long id = data.ids[row];
+            if (after != null) {
+                if (forward.size() <= size && comesAfter(key, id, afterKey, after.getId(), sort)) {
+                    forward.add(id);
+                }
+            } else if (before != null) {
+                if (comesAfter(beforeKey, before.getId(), key, id, sort)) {
+                    backward.addLast(id);
+                    if (backward.size() > size + 1) {
+                        backward.removeFirst();
+                    }
+                }
+            } else if (forward.size() <= size) {
+                forward.add(id);
+            }
+        }
+
+        List<Long> pageIds;
+        boolean more;
+        if (before != null) {
+            more = backward.size() > size;
+            if (more) {
+                backward.removeFirst();
+            }
+            pageIds = new ArrayList<>(backward);
+        } else {
+            more = forward.size() > size;
+            pageIds = more ? new ArrayList<>(forward.subList(0, size)) : forward;
+        }
+
+        List<FacetResult.PriceBucket> buckets = new ArrayList<>(BUCKET_BOUNDS.length);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            BigDecimal min = BigDecimal.valueOf(BUCKET_BOUNDS[i], 2);
+            BigDecimal max = i + 1 < BUCKET_BOUNDS.length ? BigDecimal.valueOf(BUCKET_BOUNDS[i + 1] - 1, 2) : null;
+            buckets.add(new FacetResult.PriceBucket(min, max, bucketCounts[i]));
+        }
+
+        return new FacetResult(pageIds, more, after != null, before != null, matches, buckets,
+                inStockCount, outOfStockCount, System.nanoTime() - start);
+    }
+
+    /**
+     * Stock-only changes are patched into the live columns; anything that moves a row in one of
+     * the sort orders marks the columns for a rebuild on the next query. A write that lands
+     * while the rows are being loaded waits for the load and is applied on top of it.
+     */
+    public void update(ProductSnapshot product) {
+        synchronized (lock) {
+            if (!built) {
+                return;
+            }
+            Row row = new Row(product.getId(), product.getPrice(), product.getStockQuantity(), product.getCreatedAt());
+            Row previous = rows.put(row.id, row);
+            Columns data = columns;
+            Integer position = data != null ? data.positions.get(row.id) : null;
+            if (previous != null && position != null && previous.sortsLike(row) && !dirty) {
+                data.stock[position] = row.stock;
+            } else {
+                dirty = true;
+            }
+        }
+    }
+
+    public void remove(Long productId) {
+        synchronized (lock) {
+            if (built && rows.remove(productId) != null) {
+                dirty = true;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            rows.clear();
+            columns = null;
+            built = false;
+            dirty = false;
+        }
+    }
+
+    private Columns current(Supplier<List<Product>> corpus) {
+        Columns data = columns;
+        if (built && !dirty && data != null) {
+            return data;
+        }
+        synchronized (lock) {
+            if (!built) {
+                for (Product product : corpus.get()) {
+                    Row row = new Row(product.getId(), product.getPrice(), product.getStockQuantity(), product.getCreatedAt());
+                    rows.put(row.id, row);
+                }
+                built = true;
+                dirty = true;
+            }
+            if (dirty || columns == null) {
+                columns = new Columns(new ArrayList<>(rows.values()));
+                dirty = false;
+            }
+            return columns;
+        }
+    }
+
+    private static boolean comesAfter(long key, long id, long anchorKey, long anchorId, CatalogQuery.Sort sort) {
+        if (sort == CatalogQuery.Sort.PRICE) {
+            return key > anchorKey || (key == anchorKey && id > anchorId);
+        }
+        return key < anchorKey || (key == anchorKey && id < anchorId);
+    }
+
+    private static long sortKey(ProductPage.Cursor cursor, CatalogQuery.Sort sort) {
+        return sort == CatalogQuery.Sort.PRICE ? toCents(cursor.getPrice()) : toMicros(cursor.getCreatedAt());
+    }
+
+    private static int bucketOf(long cents) {
+        int index = Arrays.binarySearch(BUCKET_BOUNDS, cents);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price == null ? 0 : price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return Long.MIN_VALUE;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static final class Row {
+
+        private final long id;
+        private final long priceCents;
+        private final int stock;
+        private final long createdMicros;
+
+        Row(Long id, BigDecimal price, Integer stock, LocalDateTime createdAt) {
+            this.id = id;
+            this.priceCents = toCents(price);
+            this.stock = stock != null ? stock : 0;
+            this.createdMicros = toMicros(createdAt);
+        }
+
+        boolean sortsLike(Row other) {
+            return priceCents == other.priceCents && createdMicros == other.createdMicros;
+        }
+    }
+
+    private static final class Columns {
+
+        private final long[] ids;
+        private final long[] priceCents;
+        private final int[] stock;
+        private final long[] createdMicros;
+        private final int[] newestOrder;
+        private final int[] priceOrder;
+        private final Map<Long, Integer> positions;
+
+        Columns(List<Row> source) {
+            int n = source.size();
+            ids = new long[n];
+            priceCents = new long[n];
+            stock = new int[n];
+            createdMicros = new long[n];
+            positions = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                Row row = source.get(i);
+                ids[i] = row.id;
+                priceCents[i] = row.priceCents;
+                stock[i] = row.stock;
+                createdMicros[i] = row.createdMicros;
+                positions.put(row.id, i);
+            }
+            newestOrder = order(n, Comparator.<Integer>comparingLong(i -> createdMicros[i]).reversed()
+                    .thenComparing(Comparator.<Integer>comparingLong(i -> ids[i]).reversed()));
+            priceOrder = order(n, Comparator.<Integer>comparingLong(i -> priceCents[i])
+                    .thenComparingLong(i -> ids[i]));
+        }
+
+        private static int[] order(int n, Comparator<Integer> comparator) {
+            Integer[] boxed = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                boxed[i] = i;
+            }
+            Arrays.sort(boxed, comparator);
+            int[] result = new int[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = boxed[i];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.service;
+
+import java.util.Locale;
+
+/**
+ * File formats accepted by the bulk product import and produced by the export.
+ */
+public enum ProductFileFormat {
+
+    CSV("text/csv", "csv"),
+    JSONL("application/x-ndjson", "jsonl");
+
+    private final String contentType;
+    private final String extension;
+
+    ProductFileFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Picks the format from an explicit name or a request content type.
+     */
+    public static ProductFileFormat from(String formatOrContentType) {
+        String value = formatOrContentType != null ? formatOrContentType.toLowerCase(Locale.ROOT) : "";
+        if (value.contains("csv")) {
+            return CSV;
+        }
+        if (value.contains("json")) {
+            return JSONL;
+        }
+        throw new RuntimeException("Unsupported product file format: " + formatOrContentType);
+    }
+}
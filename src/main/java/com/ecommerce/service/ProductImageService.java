@@ -0,0 +1,347 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Stores uploaded product images under {@code <upload-dir>/products/<key>/} and generates the
+ * smaller variants the pages actually show on a small background pool. Every upload gets a new
+ * key, so a given image URL never changes content and can be cached indefinitely.
+ */
+@Service
+public class ProductImageService {
+
+    public enum Variant {
+        ORIGINAL(0, 0),
+        CARD(480, 360),
+        THUMB(160, 160);
+
+        private final int maxWidth;
+        private final int maxHeight;
+
+        Variant(int maxWidth, int maxHeight) {
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+        }
+
+        String fileName(String extension) {
+            return name().toLowerCase(Locale.ROOT) + "." + extension;
+        }
+    }
+
+    public static final String URL_PREFIX = "/uploads/products/";
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif");
+
+    // ImageIO format names (lower-cased) of the decoders that may have sniffed an accepted upload.
+    private static final Map<String, String> FORMATS = Map.of(
+            "jpeg", "jpg",
+            "png", "png",
+            "gif", "gif");
+
+    // Decoding is refused above this many pixels, whatever the file size.
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    private static final Pattern UPLOAD_URL =
+            Pattern.compile("^" + Pattern.quote(URL_PREFIX) + "([0-9a-f]{32})/original\\.(jpg|png|gif)$");
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{32}");
+
+    private final Path root;
+    private final ThreadPoolExecutor pool;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong derivativesGenerated = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong generationNanos = new AtomicLong();
+
+    public ProductImageService(@Value("${app.file.upload-dir:uploads}") String uploadDir) {
+        this.root = Paths.get(uploadDir, "products").toAbsolutePath().normalize();
+        AtomicInteger threads = new AtomicInteger();
+        int size = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1_000), runnable -> {
+            Thread thread = new Thread(runnable, "product-images-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Streams the upload to disk and queues its variants. Returns the URL of the original.
+     */
+    public String store(MultipartFile file) throws IOException {
+        String extension = file.getContentType() != null
+                ? EXTENSIONS.get(file.getContentType().toLowerCase(Locale.ROOT))
+                : null;
+        if (extension == null) {
+            throw new RuntimeException("Only JPEG, PNG and GIF images can be uploaded");
+        }
+
+        String key = UUID.randomUUID().toString().replace("-", "");
+        Path directory = root.resolve(key);
+        Files.createDirectories(directory);
+        Path partial = directory.resolve("upload.tmp");
+        file.transferTo(partial);
+        try {
+            if (!extension.equals(checkImage(partial))) {
+                throw new RuntimeException("Image content does not match its declared type");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            Files.deleteIfExists(directory);
+            throw e;
+        }
+        Files.move(partial, directory.resolve(Variant.ORIGINAL.fileName(extension)), StandardCopyOption.ATOMIC_MOVE);
+
+        uploads.incrementAndGet();
+        generateAsync(key, extension);
+        return URL_PREFIX + key + "/" + Variant.ORIGINAL.fileName(extension);
+    }
+
+    /**
+     * Removes an upload and its variants, as when the product it was stored for could not be
+     * saved. URLs that were not uploaded here are ignored.
+     */
+    public void delete(String imageUrl) {
+        Matcher matcher = imageUrl != null ? UPLOAD_URL.matcher(imageUrl) : null;
+        if (matcher == null || !matcher.matches()) {
+            return;
+        }
+        Path directory = root.resolve(matcher.group(1));
+        // A variant still being generated can drop a file in after the listing; go round again.
+        for (int attempt = 0; attempt < 3 && Files.exists(directory); attempt++) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                // Not fatal: the product never pointed at it.
+            }
+        }
+    }
+
+    /**
+     * URL of the given variant of an image. Images that were not uploaded here (external URLs)
+     * have no variants and are returned unchanged.
+     */
+    public String url(String imageUrl, String variant) {
+        if (imageUrl == null) {
+            return null;
+        }
+        Matcher matcher = UPLOAD_URL.matcher(imageUrl);
+        if (!matcher.matches()) {
+            return imageUrl;
+        }
+        Variant target = Variant.valueOf(variant.toUpperCase(Locale.ROOT));
+        return URL_PREFIX + matcher.group(1) + "/" + target.fileName(matcher.group(2));
+    }
+
+    /**
+     * Resolves a variant file on disk, or null if the name is not one of ours. A variant that
+     * has not been generated yet resolves to the original (with {@code exact} false) and is
+     * queued for generation.
+     */
+    public ImageFile resolve(String key, String fileName) {
+        if (!KEY.matcher(key).matches()) {
+            return null;
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || !EXTENSIONS.containsValue(fileName.substring(dot + 1))) {
+            return null;
+        }
+        String extension = fileName.substring(dot + 1);
+        Variant variant;
+        try {
+            variant = Variant.valueOf(fileName.substring(0, dot).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        Path directory = root.resolve(key);
+        Path requested = directory.resolve(variant.fileName(extension));
+        if (Files.isRegularFile(requested)) {
+            return new ImageFile(requested, extension, true);
+        }
+        Path original = directory.resolve(Variant.ORIGINAL.fileName(extension));
+        if (!Files.isRegularFile(original)) {
+            return null;
+        }
+        generateAsync(key, extension);
+        return new ImageFile(original, extension, false);
+    }
+
+    public Map<String, Object> getStats() {
+        long generated = derivativesGenerated.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("uploads", uploads.get());
+        stats.put("derivativesGenerated", generated);
+        stats.put("failures", failures.get());
+        stats.put("queued", pool.getQueue().size());
+        stats.put("averageGenerationMillis", generated == 0 ? 0.0 : generationNanos.get() / 1_000_000.0 / generated);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void generateAsync(String key, String extension) {
+        if (!inFlight.add(key)) {
+            return;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    generate(key, extension);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full; the variant will be requested again on the next page view.
+            inFlight.remove(key);
+        }
+    }
+
+    private void generate(String key, String extension) {
+        Path directory = root.resolve(key);
+        try {
+            BufferedImage source = null;
+            for (Variant variant : Variant.values()) {
+                Path target = directory.resolve(variant.fileName(extension));
+                if (variant == Variant.ORIGINAL || Files.exists(target)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (source == null) {
+                    source = ImageIO.read(directory.resolve(Variant.ORIGINAL.fileName(extension)).toFile());
+                    if (source == null) {
+                        throw new IOException("Unreadable image " + key);
+                    }
+                }
+                BufferedImage scaled = scale(source, variant, extension);
+                Path partial = directory.resolve(variant.name() + ".tmp");
+                ImageIO.write(scaled, "jpg".equals(extension) ? "jpeg" : "png".equals(extension) ? "png" : "gif", partial.toFile());
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                derivativesGenerated.incrementAndGet();
+                generationNanos.addAndGet(System.nanoTime() - start);
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, Variant variant, String extension) {
+        double ratio = Math.min(1.0, Math.min(
+                (double) variant.maxWidth / source.getWidth(),
+                (double) variant.maxHeight / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        // JPEG has no alpha channel; everything else keeps it.
+        int type = "jpg".equals(extension) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Reads only the image header: rejects files that are not images, images in formats other
+     * than JPEG, PNG and GIF, and images too large to decode. Returns the extension of the format
+     * actually found.
+     */
+    private static String checkImage(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new RuntimeException("Uploaded file is not a readable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                String extension = FORMATS.get(reader.getFormatName().toLowerCase(Locale.ROOT));
+                if (extension == null) {
+                    throw new RuntimeException("Only JPEG, PNG and GIF images can be uploaded");
+                }
+                reader.setInput(input);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new RuntimeException("Image is too large");
+                }
+                return extension;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static final class ImageFile {
+
+        private final Path path;
+        private final String extension;
+        private final boolean exact;
+
+        ImageFile(Path path, String extension, boolean exact) {
+            this.path = path;
+            this.extension = extension;
+            this.exact = exact;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getContentType() {
+            return "jpg".equals(extension) ? "image/jpeg" : "image/" + extension;
+        }
+
+        /**
+         * False when the requested variant was not ready and the original is served in its place.
+         */
+        public boolean isExact() {
+            return exact;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk product import. Counters are updated as batches commit, so a running
+ * import can be watched through {@link #toProgress()}; only the first
+ * {@value #MAX_REPORTED_ERRORS} row errors are kept.
+ */
+public class ProductImportResult {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private final ProductFileFormat format;
+    private final long startedNanos = System.nanoTime();
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile long rowsRead;
+    private volatile long inserted;
+    private volatile long updated;
+    private volatile long failed;
+    private volatile long batches;
+    private volatile long elapsedNanos = -1;
+
+    ProductImportResult(ProductFileFormat format) {
+        this.format = format;
+    }
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void batchCommitted(int insertedRows, int updatedRows) {
+        inserted += insertedRows;
+        updated += updatedRows;
+        batches++;
+    }
+
+    void reject(long line, String message) {
+        failed++;
+        synchronized (errors) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    void finish() {
+        elapsedNanos = System.nanoTime() - startedNanos;
+    }
+
+    public ProductFileFormat getFormat() {
+        return format;
+    }
+
+    public boolean isFinished() {
+        return elapsedNanos >= 0;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return (isFinished() ? elapsedNanos : System.nanoTime() - startedNanos) / 1_000_000;
+    }
+
+    public double getRowsPerSecond() {
+        long millis = getElapsedMillis();
+        return millis == 0 ? 0.0 : rowsRead * 1000.0 / millis;
+    }
+
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+
+    /**
+     * Counters only, without the row errors; this is what the metrics endpoint reports.
+     */
+    public Map<String, Object> toProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("format", format);
+        progress.put("finished", isFinished());
+        progress.put("rowsRead", rowsRead);
+        progress.put("inserted", inserted);
+        progress.put("updated", updated);
+        progress.put("failed", failed);
+        progress.put("batches", batches);
+        progress.put("elapsedMillis", getElapsedMillis());
+        progress.put("rowsPerSecond", getRowsPerSecond());
+        return progress;
+    }
+
+    public static class RowError {
+
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from CSV or JSON lines. Rows are parsed one at a time off the input
+ * stream, validated against the {@link Product} constraints and written with plain JDBC in
+ * batches of {@value #BATCH_SIZE}, each batch in its own transaction, so memory use does not
+ * depend on the size of the upload. Rows with an {@code id} update that product; rows without
+ * one are inserted. If a batch is rejected by the database its rows are retried one by one so
+ * the failure can be pinned to a line.
+ */
+@Service
+public class ProductImportService {
+
+    static final int BATCH_SIZE = 1_000;
+
+    // Longest CSV record we are willing to buffer; anything bigger is reported and skipped.
+    static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    private static final String INSERT_SQL = "INSERT INTO products " +
+            "(id, name, description, price, stock_quantity, image_url, created_at, updated_at, version) " +
+            "VALUES (nextval('products_id_seq'), ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    // A hot product's stock lives in its counters (see HotStockCounters), so the import leaves it alone.
+    private static final String UPDATE_SQL = "UPDATE products SET name = ?, description = ?, price = ?, " +
+            "stock_quantity = CASE WHEN stock_slots = 0 THEN ? ELSE stock_quantity END, image_url = ?, " +
+            "updated_at = ?, version = version + 1 WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    private final Object importLock = new Object();
+    private volatile ProductImportResult current;
+
+    public ProductImportResult importProducts(InputStream input, ProductFileFormat format) throws IOException {
+        ProductImportResult result = new ProductImportResult(format);
+        synchronized (importLock) {
+            if (current != null && !current.isFinished()) {
+                throw new RuntimeException("Another product import is already running");
+            }
+            current = result;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RowReader rows = format == ProductFileFormat.CSV ? new CsvRowReader(reader) : new JsonLinesRowReader(reader);
+            List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                result.rowRead();
+                String error = row.error != null ? row.error : validate(row.product);
+                if (error != null) {
+                    result.reject(row.line, error);
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    write(batch, transaction, result);
+                    batch.clear();
+                }
+            }
+            write(batch, transaction, result);
+        } finally {
+            result.finish();
+            if (result.getInserted() + result.getUpdated() > 0) {
+                productService.reloadCatalog();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Progress of the running import, or the outcome of the last one.
+     */
+    public Map<String, Object> getStats() {
+        ProductImportResult result = current;
+        return result != null ? result.toProgress() : Map.of();
+    }
+
+    private String validate(Product product) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void write(List<ImportRow> batch, TransactionTemplate transaction, ProductImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            int[] counts = transaction.execute(status -> writeBatch(batch));
+            result.batchCommitted(counts[0], counts[1]);
+            for (ImportRow row : batch) {
+                if (row.missing) {
+                    result.reject(row.line, "Product not found: " + row.product.getId());
+                }
+            }
+        } catch (DataAccessException e) {
+            for (ImportRow row : batch) {
+                try {
+                    int[] counts = transaction.execute(status -> writeBatch(List.of(row)));
+                    result.batchCommitted(counts[0], counts[1]);
+                    if (row.missing) {
+                        result.reject(row.line, "Product not found: " + row.product.getId());
+                    }
+                } catch (DataAccessException rowFailure) {
+                    result.reject(row.line, NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns {inserted, updated}. Updates that match no row flag the import row as missing.
+     */
+    private int[] writeBatch(List<ImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        List<Object[]> inserts = new ArrayList<>();
+        List<ImportRow> updateRows = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (ImportRow row : rows) {
+            Product p = row.product;
+            if (p.getId() == null) {
+                inserts.add(new Object[]{p.getName(), p.getDescription(), p.getPrice(), p.getStockQuantity(),
+                        p.getImageUrl(), now, now});
+            } else {
+                updateRows.add(row);
+                updates.add(new Object[]{p.getName(), p.getDescription(), p.getPrice(), p.getStockQuantity(),
+                        p.getImageUrl(), now, p.getId()});
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+        int updated = 0;
+        if (!updates.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            for (int i = 0; i < counts.length; i++) {
+                ImportRow row = updateRows.get(i);
+                row.missing = counts[i] == 0;
+                if (!row.missing) {
+                    updated++;
+                }
+            }
+        }
+        return new int[]{inserts.size(), updated};
+    }
+
+    private static final class ImportRow {
+
+        private final long line;
+        private final Product product;
+        private final String error;
+        private boolean missing;
+
+        private ImportRow(long line, Product product, String error) {
+            this.line = line;
+            this.product = product;
+            this.error = error;
+        }
+
+        static ImportRow of(long line, Product product) {
+            return new ImportRow(line, product, null);
+        }
+
+        static ImportRow failed(long line, String error) {
+            return new ImportRow(line, null, error);
+        }
+    }
+
+    private interface RowReader {
+
+        /**
+         * Next row, or null at end of input. Rows that could not be parsed carry an error.
+         */
+        ImportRow next() throws IOException;
+    }
+
+    /**
+     * Reads the {@code id, name, description, price, stock_quantity, image_url} columns (in any
+     * order, header required) of an RFC 4180 CSV file, including quoted fields with embedded
+     * commas, quotes and line breaks.
+     */
+    private static final class CsvRowReader implements RowReader {
+
+        private final Reader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private long line = 1;
+        private int pending = -2;
+
+        CsvRowReader(Reader reader) throws IOException {
+            this.reader = reader;
+            if (!readRecord()) {
+                throw new RuntimeException("Import file is empty");
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                columns.put(normalizeColumn(fields.get(i)), i);
+            }
+            for (String required : List.of("name", "price", "stockquantity")) {
+                if (!columns.containsKey(required)) {
+                    throw new RuntimeException("CSV header is missing column: " + required);
+                }
+            }
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            while (true) {
+                long start = line;
+                try {
+                    if (!readRecord()) {
+                        return null;
+                    }
+                } catch (RecordTooLongException e) {
+                    return ImportRow.failed(start, "Row is longer than " + MAX_RECORD_CHARS + " characters");
+                }
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                try {
+                    Product product = new Product();
+                    product.setId(toLong(column("id")));
+                    product.setName(column("name"));
+                    product.setDescription(blankToNull(column("description")));
+                    product.setPrice(toPrice(column("price")));
+                    product.setStockQuantity(toInteger(column("stockquantity")));
+                    product.setImageUrl(blankToNull(column("imageurl")));
+                    return ImportRow.of(start, product);
+                } catch (RuntimeException e) {
+                    return ImportRow.failed(start, e.getMessage());
+                }
+            }
+        }
+
+        private String column(String name) {
+            Integer index = columns.get(name);
+            return index != null && index < fields.size() ? fields.get(index) : null;
+        }
+
+        /**
+         * Reads one record into {@link #fields}; false at end of input.
+         */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int length = 0;
+            boolean inQuotes = false;
+            boolean sawAny = false;
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    if (!sawAny) {
+                        return false;
+                    }
+                    fields.add(field.toString());
+                    return true;
+                }
+                sawAny = true;
+                if (++length > MAX_RECORD_CHARS) {
+                    skipRecord(inQuotes);
+                    throw new RecordTooLongException();
+                }
+                if (inQuotes) {
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            pending = next;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return true;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+        }
+
+        private void skipRecord(boolean inQuotes) throws IOException {
+            int c;
+            while ((c = read()) != -1) {
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n') {
+                    line++;
+                    if (!inQuotes) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private static String normalizeColumn(String name) {
+            return name.trim().toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "");
+        }
+    }
+
+    private static final class RecordTooLongException extends RuntimeException {
+    }
+
+    /**
+     * One JSON object per line with the {@link Product} property names (snake_case also accepted).
+     */
+    private final class JsonLinesRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private final StringBuilder record = new StringBuilder();
+        private long line;
+
+        JsonLinesRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            while (true) {
+                String text;
+                try {
+                    text = readLine();
+                } catch (RecordTooLongException e) {
+                    return ImportRow.failed(line, "Row is longer than " + MAX_RECORD_CHARS + " characters");
+                }
+                if (text == null) {
+                    return null;
+                }
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode node = objectMapper.readTree(text);
+                    if (!node.isObject()) {
+                        return ImportRow.failed(line, "Expected a JSON object");
+                    }
+                    Product product = new Product();
+                    product.setId(toLong(text(node, "id", "id")));
+                    product.setName(text(node, "name", "name"));
+                    product.setDescription(blankToNull(text(node, "description", "description")));
+                    product.setPrice(toPrice(text(node, "price", "price")));
+                    product.setStockQuantity(toInteger(text(node, "stockQuantity", "stock_quantity")));
+                    product.setImageUrl(blankToNull(text(node, "imageUrl", "image_url")));
+                    return ImportRow.of(line, product);
+                } catch (JsonProcessingException e) {
+                    return ImportRow.failed(line, "Malformed JSON: " + e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    return ImportRow.failed(line, e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Reads one line without its terminator; null at end of input. A line longer than
+         * {@link #MAX_RECORD_CHARS} is skipped to its end rather than buffered.
+         */
+        private String readLine() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            line++;
+            record.setLength(0);
+            int length = 0;
+            while (c != -1 && c != '\n') {
+                if (++length > MAX_RECORD_CHARS) {
+                    while (c != -1 && c != '\n') {
+                        c = reader.read();
+                    }
+                    throw new RecordTooLongException();
+                }
+                if (c != '\r') {
+                    record.append((char) c);
+                }
+                c = reader.read();
+            }
+            return record.toString();
+        }
+
+        private String text(JsonNode node, String name, String alternative) {
+            JsonNode value = node.has(name) ? node.get(name) : node.get(alternative);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Long toLong(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid id: " + value);
+        }
+    }
+
+    private static Integer toInteger(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid stock quantity: " + value);
+        }
+    }
+
+    private static BigDecimal toPrice(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid price: " + value);
+        }
+    }
+}
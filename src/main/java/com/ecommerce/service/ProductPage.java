@@ -0,0 +1,130 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated catalog listing. Cursors encode the sort key and id of the
+ * boundary row, so fetching any page is an index seek no matter how deep it is.
+ */
+public class ProductPage {
+
+    private final List<Product> items;
+    private final CatalogQuery.Sort sort;
+    private final int size;
+    private final String nextCursor;
+    private final String previousCursor;
+    private final FacetResult facets;
+
+    public ProductPage(List<Product> items, CatalogQuery.Sort sort, int size, String nextCursor, String previousCursor) {
+        this(items, sort, size, nextCursor, previousCursor, null);
+    }
+
+    public ProductPage(List<Product> items, CatalogQuery.Sort sort, int size, String nextCursor, String previousCursor,
+                       FacetResult facets) {
+        this.items = items;
+        this.sort = sort;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+        this.facets = facets;
+    }
+
+    public ProductPage withFacets(FacetResult facets) {
+        return new ProductPage(items, sort, size, nextCursor, previousCursor, facets);
+    }
+
+    public static String cursorOf(Product product, CatalogQuery.Sort sort) {
+        String key = sort == CatalogQuery.Sort.PRICE
+                ? product.getPrice().toPlainString()
+                : product.getCreatedAt().toString();
+        String raw = key + "~" + product.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #cursorOf}; returns {@code null} for anything malformed,
+     * which callers treat as "start from the first page".
+     */
+    public static Cursor decode(String cursor, CatalogQuery.Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('~');
+            if (separator <= 0) {
+                return null;
+            }
+            String key = raw.substring(0, separator);
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            return sort == CatalogQuery.Sort.PRICE
+                    ? new Cursor(null, new BigDecimal(key), id)
+                    : new Cursor(LocalDateTime.parse(key), null, id);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public CatalogQuery.Sort getSort() {
+        return sort;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public FacetResult getFacets() {
+        return facets;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isHasPrevious() {
+        return previousCursor != null;
+    }
+
+    public static final class Cursor {
+
+        private final LocalDateTime createdAt;
+        private final BigDecimal price;
+        private final Long id;
+
+        Cursor(LocalDateTime createdAt, BigDecimal price, Long id) {
+            this.createdAt = createdAt;
+            this.price = price;
+            this.id = id;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-process inverted index over product name and description. Replaces the ILIKE scans in
+ * {@link com.ecommerce.repository.ProductRepository}: every query term must match (AND), each
+ * term also matches tokens it is a prefix of, and results are ranked by a TF-IDF style score
+ * that weighs name hits above description hits.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    private static final double PREFIX_PENALTY = 0.5;
+
+    private final NavigableMap<String, Map<Long, Posting>> postings = new TreeMap<>();
+    private final Map<Long, List<String>> documentTokens = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+
+    /**
+     * Returns the ids of matching products, best match first. The index is built from
+     * {@code corpus} on first use and maintained incrementally afterwards.
+     */
+    public List<Long> search(String query, boolean nameOnly, Supplier<List<Product>> corpus) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ensureBuilt(corpus);
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            int documentCount = Math.max(documentTokens.size(), 1);
+
+            for (String term : terms) {
+                Map<Long, Double> termScores = scoreTerm(term, nameOnly, documentCount);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            return ranked.stream().map(Map.Entry::getKey).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a committed write. Until the index is built there is nothing to patch; a write that
+     * lands during the build waits for it and is applied on top, as the build may have read the
+     * product before the write.
+     */
+    public void update(ProductSnapshot product) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                removeDocument(product.getId());
+                addDocument(product.getId(), product.getName(), product.getDescription());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                removeDocument(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTokens.clear();
+            built = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return documentTokens.size();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void ensureBuilt(Supplier<List<Product>> corpus) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                for (Product product : corpus.get()) {
+                    addDocument(product.getId(), product.getName(), product.getDescription());
+                }
+                built = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreTerm(String term, boolean nameOnly, int documentCount) {
+        Map<Long, Double> scores = new HashMap<>();
+        // Every indexed token starting with the term lies in [term, term + U+FFFF).
+        for (Map.Entry<String, Map<Long, Posting>> entry
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            double factor = entry.getKey().equals(term) ? 1.0 : PREFIX_PENALTY;
+            double idf = Math.log(1.0 + (double) documentCount / entry.getValue().size());
+
+            for (Map.Entry<Long, Posting> posting : entry.getValue().entrySet()) {
+                Posting hit = posting.getValue();
+                double tf = hit.nameCount * NAME_WEIGHT + (nameOnly ? 0 : hit.descriptionCount * DESCRIPTION_WEIGHT);
+                if (tf > 0) {
+                    scores.merge(posting.getKey(), tf * idf * factor, Double::sum);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private void addDocument(Long id, String name, String description) {
+        Map<String, Posting> hits = new HashMap<>();
+        for (String token : tokenize(name)) {
+            hits.computeIfAbsent(token, t -> new Posting()).nameCount++;
+        }
+        for (String token : tokenize(description)) {
+            hits.computeIfAbsent(token, t -> new Posting()).descriptionCount++;
+        }
+        for (Map.Entry<String, Posting> hit : hits.entrySet()) {
+            postings.computeIfAbsent(hit.getKey(), t -> new HashMap<>()).put(id, hit.getValue());
+        }
+        documentTokens.put(id, new ArrayList<>(hits.keySet()));
+    }
+
+    private void removeDocument(Long id) {
+        List<String> tokens = documentTokens.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Map<Long, Posting> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private static final class Posting {
+        private int nameCount;
+        private int descriptionCount;
+    }
+}
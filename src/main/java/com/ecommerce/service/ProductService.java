@@ -3,30 +3,129 @@ package com.ecommerce.service;
 import com.ecommerce.entity.Product;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class ProductService {
 
+    private static final String GUARDED_DECREMENT_SQL = "UPDATE products " +
+            "SET stock_quantity = stock_quantity - ?, version = version + 1, updated_at = ? " +
+            "WHERE id = ? AND stock_quantity >= ? AND stock_slots = 0";
+
+    private static final String GUARDED_INCREMENT_SQL = "UPDATE products " +
+            "SET stock_quantity = stock_quantity + ?, version = version + 1, updated_at = ? " +
+            "WHERE id = ? AND stock_slots = 0";
+
+    private static final String PRODUCT_ROWS_SQL = "SELECT id, name, description, price, stock_quantity, " +
+            "image_url, created_at, updated_at, version FROM products WHERE id IN (%s)";
+
+    private static final String STOCK_SLOTS_SQL = "SELECT id, stock_slots FROM products WHERE id IN (%s)";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HotStockCounters hotStock;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private CartSummaryCache cartSummaries;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        refreshAfterCommit(saved);
+        return saved;
     }
 
     public Product updateProduct(Product product) {
-        return productRepository.save(product);
+        return updateProduct(product, null);
+    }
+
+    /**
+     * Saves an edited product. {@code loadedStock} is the stock the edit form was loaded with:
+     * checkouts take a hot product's units from its slots without bumping the row's version, so
+     * the form's stock is applied to the slots as a change against it, not as a new total. Null
+     * leaves the slots alone.
+     */
+    public Product updateProduct(Product product, Integer loadedStock) {
+        // Cart summaries hold totals at the old price; unknown previous price counts as changed.
+        boolean priceChanged = product.getId() == null || catalogCache.peek(product.getId())
+                .map(previous -> previous.getPrice().compareTo(product.getPrice()) != 0)
+                .orElse(true);
+        product.touch();
+        Product saved = productRepository.save(product);
+        if (loadedStock != null && !loadedStock.equals(saved.getStockQuantity())) {
+            Long id = saved.getId();
+            int delta = saved.getStockQuantity() - loadedStock;
+            afterCommit(() -> hotStock.adjust(id, delta));
+        }
+        refreshAfterCommit(saved);
+        if (priceChanged) {
+            afterCommit(cartSummaries::clear);
+        }
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public Optional<Product> findById(Long id) {
-        return productRepository.findById(id);
+        return catalogCache.get(id, productRepository::findById).map(ProductSnapshot::toProduct);
+    }
+
+    /**
+     * Last-modified time of one product, for conditional GETs. Answered from the catalog cache
+     * when the product is there, otherwise by a single-column query rather than a full load.
+     */
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> findLastModified(Long id) {
+        Optional<ProductSnapshot> cached = catalogCache.peek(id);
+        if (cached.isPresent()) {
+            return Optional.ofNullable(cached.get().getUpdatedAt());
+        }
+        return productRepository.findUpdatedAtById(id);
+    }
+
+    /**
+     * Version stamp for the catalog as a whole. Every committed write, delete and reload reaches
+     * the catalog cache, so its generation changes with the catalog without a query per request.
+     */
+    public String getCatalogVersion() {
+        return catalogCache.getVersion();
     }
 
     public List<Product> findAll() {
@@ -37,16 +136,104 @@ public class ProductService {
         return productRepository.findAllOrderByCreatedAtDesc();
     }
 
+    /**
+     * Products for the given ids, cached ones first and the rest in one query; missing ids are
+     * skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<Product> findAllById(List<Long> ids) {
+        return resolve(ids);
+    }
+
+    @Transactional(readOnly = true)
     public List<Product> findAllInStock() {
-        return productRepository.findAllInStock();
+        return catalogCache.getInStock(productRepository::findAllInStock).stream()
+                .map(ProductSnapshot::toProduct)
+                .toList();
+    }
+
+    /**
+     * Returns one page of in-stock products using keyset pagination. One extra row is fetched
+     * to tell whether another page exists in the direction of travel.
+     */
+    @Transactional(readOnly = true)
+    public ProductPage findInStockPage(CatalogQuery query) {
+        CatalogQuery.Sort sort = query.getSort();
+        int size = query.getPageSize();
+        Limit limit = Limit.of(size + 1);
+
+        ProductPage.Cursor after = ProductPage.decode(query.getAfter(), sort);
+        ProductPage.Cursor before = after == null ? ProductPage.decode(query.getBefore(), sort) : null;
+
+        List<Product> rows;
+        if (after != null) {
+            rows = sort == CatalogQuery.Sort.PRICE
+                    ? productRepository.findInStockByPriceAfter(after.getPrice(), after.getId(), limit)
+                    : productRepository.findInStockNewestAfter(after.getCreatedAt(), after.getId(), limit);
+        } else if (before != null) {
+            rows = sort == CatalogQuery.Sort.PRICE
+                    ? productRepository.findInStockByPriceBefore(before.getPrice(), before.getId(), limit)
+                    : productRepository.findInStockNewestBefore(before.getCreatedAt(), before.getId(), limit);
+        } else {
+            rows = sort == CatalogQuery.Sort.PRICE
+                    ? productRepository.findInStockByPrice(limit)
+                    : productRepository.findInStockNewest(limit);
+        }
+
+        boolean more = rows.size() > size;
+        List<Product> items = new ArrayList<>(more ? rows.subList(0, size) : rows);
+        if (before != null) {
+            Collections.reverse(items);
+        }
+        return toPage(items, sort, size, more, after != null, before != null, null);
+    }
+
+    /**
+     * Catalog listing with facet counts. Plain in-stock listings still page through the keyset
+     * queries; price or stock filters are answered from the columnar {@link ProductFacetIndex}.
+     */
+    @Transactional(readOnly = true)
+    public ProductPage findCatalogPage(CatalogQuery query) {
+        if (!query.isFiltered()) {
+            return findInStockPage(query).withFacets(facetIndex.query(query, false, productRepository::findAll));
+        }
+
+        FacetResult facets = facetIndex.query(query, true, productRepository::findAll);
+        List<Product> items = resolve(facets.getIds());
+        return toPage(items, query.getSort(), query.getPageSize(), facets.isMore(),
+                facets.isAfterCursor(), facets.isBeforeCursor(), facets);
+    }
+
+    private ProductPage toPage(List<Product> items, CatalogQuery.Sort sort, int size, boolean more,
+                               boolean fromAfter, boolean fromBefore, FacetResult facets) {
+        if (items.isEmpty()) {
+            return new ProductPage(items, sort, size, null, null, facets);
+        }
+
+        Product first = items.get(0);
+        Product last = items.get(items.size() - 1);
+        boolean hasNext = fromBefore || more;
+        boolean hasPrevious = fromAfter || (fromBefore && more);
+        return new ProductPage(items, sort, size,
+                hasNext ? ProductPage.cursorOf(last, sort) : null,
+                hasPrevious ? ProductPage.cursorOf(first, sort) : null,
+                facets);
     }
 
+    @Transactional(readOnly = true)
     public List<Product> searchProducts(String searchTerm) {
-        return productRepository.searchProducts(searchTerm);
+        return resolve(searchIndex.search(searchTerm, false, productRepository::findAll));
     }
 
+    @Transactional(readOnly = true)
     public List<Product> findByNameContaining(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+        return resolve(searchIndex.search(name, true, productRepository::findAll));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductSuggestIndex.Suggestion> suggest(String prefix, int limit) {
+        return suggestIndex.suggest(prefix, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS),
+                productRepository::findAll);
     }
 
     public List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
@@ -59,41 +246,280 @@ public class ProductService {
 
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        afterCommit(() -> {
+            catalogCache.evict(id);
+            searchIndex.remove(id);
+            suggestIndex.remove(id);
+            facetIndex.remove(id);
+            cartSummaries.clear();
+        });
+    }
+
+    /**
+     * Drops every in-memory view of the catalog after a bulk write that bypassed this service;
+     * each is rebuilt from the database on its next read.
+     */
+    public void reloadCatalog() {
+        afterCommit(() -> {
+            catalogCache.clear();
+            searchIndex.clear();
+            suggestIndex.clear();
+            facetIndex.clear();
+            cartSummaries.clear();
+        });
     }
 
     public boolean existsById(Long id) {
         return productRepository.existsById(id);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void updateStock(Long productId, Integer newStock) {
-        Product product = findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        product.setStockQuantity(newStock);
-        productRepository.save(product);
+        optimisticRetry.run("product.updateStock", () -> {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            product.setStockQuantity(newStock);
+            product.touch();
+            hotStock.set(productId, newStock);
+            refreshAfterCommit(productRepository.save(product));
+        });
     }
 
+    /**
+     * Takes the units off the product's stock. Runs in the caller's transaction when there is
+     * one (checkout), otherwise in its own. The row is only written while the product is not
+     * hot, so a rebalance publishing the slots' sum cannot overwrite it.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void reduceStock(Long productId, Integer quantity) {
-        Product product = findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        optimisticRetry.run("product.reduceStock", () -> {
+            HotStockCounters.Take take = hotStock.take(productId, quantity, 0);
+            if (take == HotStockCounters.Take.TAKEN) {
+                return;
+            }
+            if (take != HotStockCounters.Take.SHORT
+                    && jdbcTemplate.update(GUARDED_DECREMENT_SQL, quantity, now(), productId, quantity) == 1) {
+                loadRows(List.of(productId)).forEach(this::refreshAfterCommit);
+                return;
+            }
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        if (!product.hasStock(quantity)) {
+            // Made hot since this instance last looked, so the guard skipped the row.
+            if (take != HotStockCounters.Take.SHORT && product.getStockSlots() > 0) {
+                hotStock.learn(productId, product.getStockSlots());
+                take = hotStock.take(productId, quantity, 0);
+                if (take == HotStockCounters.Take.TAKEN) {
+                    return;
+                }
+            }
             throw new RuntimeException("Insufficient stock for product: " + product.getName());
+        });
+    }
+
+    /**
+     * Takes a whole order's units off stock in one batch of guarded UPDATEs, in product id order
+     * so that checkouts sharing products lock the rows in the same order. A line whose product
+     * would be left with fewer than its reserved units updates no row, and the exception rolls
+     * back the caller's transaction, which must exist: either every line is taken or none is.
+     * Lines for hot products are taken from their {@link HotStockCounters} slots instead.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reduceStock(List<StockDecrement> decrements) {
+        List<StockDecrement> rowLines = new ArrayList<>();
+        List<StockDecrement> hotLines = new ArrayList<>();
+        decrements.stream()
+                .sorted(Comparator.comparing(StockDecrement::getProductId))
+                .forEach(decrement -> (hotStock.isHot(decrement.getProductId()) ? hotLines : rowLines).add(decrement));
+        List<String> shortOf = new ArrayList<>();
+        List<Long> taken = new ArrayList<>();
+
+        Timestamp now = now();
+        if (!rowLines.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(GUARDED_DECREMENT_SQL,
+                    rowLines.stream().map(decrement -> guardedDecrement(decrement, now)).toList());
+            List<StockDecrement> missed = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    missed.add(rowLines.get(i));
+                } else {
+                    taken.add(rowLines.get(i).getProductId());
+                }
+            }
+            if (!missed.isEmpty()) {
+                // A product made hot since this instance last looked is skipped by the guard too.
+                Map<Long, Integer> slots = stockSlots(missed.stream().map(StockDecrement::getProductId).toList());
+                for (StockDecrement decrement : missed) {
+                    int productSlots = slots.getOrDefault(decrement.getProductId(), 0);
+                    if (productSlots > 0) {
+                        hotStock.learn(decrement.getProductId(), productSlots);
+                        hotLines.add(decrement);
+                    } else {
+                        shortOf.add(decrement.getProduct().getName());
+                    }
+                }
+                hotLines.sort(Comparator.comparing(StockDecrement::getProductId));
+            }
         }
 
-        product.reduceStock(quantity);
-        productRepository.save(product);
+        for (StockDecrement decrement : hotLines) {
+            HotStockCounters.Take take = hotStock.take(decrement.getProductId(), decrement.getQuantity(),
+                    decrement.getReserved());
+            if (take == HotStockCounters.Take.NOT_SPLIT) {
+                // Merged back into its row since this instance last looked.
+                if (jdbcTemplate.update(GUARDED_DECREMENT_SQL, guardedDecrement(decrement, now)) == 1) {
+                    taken.add(decrement.getProductId());
+                    continue;
+                }
+                take = HotStockCounters.Take.SHORT;
+            }
+            if (take == HotStockCounters.Take.SHORT) {
+                shortOf.add(decrement.getProduct().getName());
+            }
+        }
+        if (!shortOf.isEmpty()) {
+            throw new RuntimeException("Insufficient stock for product: " + String.join(", ", shortOf));
+        }
+
+        // The rows stay locked until the commit, so what is read back now is what gets committed.
+        // Hot products' rows are brought up to date by the HotStockRebalancer instead.
+        loadRows(taken).forEach(this::refreshAfterCommit);
+    }
+
+    /**
+     * Splits the product's stock across {@code slots} counters for a flash sale; see
+     * {@link HotStockCounters}. Its stock as everyone sees it does not change.
+     */
+    public void enableHotStock(Long productId, int slots) {
+        hotStock.split(productId, slots);
     }
 
+    /**
+     * Puts a hot product's stock back on its row.
+     */
+    public void disableHotStock(Long productId) {
+        if (hotStock.merge(productId)) {
+            loadRows(List.of(productId)).forEach(this::refreshAfterCommit);
+        }
+    }
+
+    /**
+     * Evens out a hot product's counters and publishes their sum as its stock.
+     */
+    public void rebalanceHotStock(Long productId) {
+        if (hotStock.rebalance(productId)) {
+            loadRows(List.of(productId)).forEach(this::refreshAfterCommit);
+        }
+    }
+
+    public int getHotStockSlots(Long productId) {
+        return hotStock.getSlots(productId);
+    }
+
+    /**
+     * Puts units back, as when an order is cancelled. Like {@link #reduceStock(Long, Integer)}
+     * it only writes the row while the product is not hot.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void addStock(Long productId, Integer quantity) {
-        Product product = findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        product.addStock(quantity);
-        productRepository.save(product);
+        optimisticRetry.run("product.addStock", () -> {
+            if (hotStock.add(productId, quantity)) {
+                return;
+            }
+            if (jdbcTemplate.update(GUARDED_INCREMENT_SQL, quantity, now(), productId) == 1) {
+                loadRows(List.of(productId)).forEach(this::refreshAfterCommit);
+                return;
+            }
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            hotStock.learn(productId, product.getStockSlots());
+            if (!hotStock.add(productId, quantity)) {
+                throw new RuntimeException("Could not add stock for product: " + product.getName());
+            }
+        });
     }
 
+    @Transactional(readOnly = true)
     public boolean hasStock(Long productId, Integer quantity) {
         Product product = findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         return product.hasStock(quantity);
     }
-}
\ No newline at end of file
+
+    public Map<String, Object> getCatalogCacheStats() {
+        return catalogCache.getStats();
+    }
+
+    private static Object[] guardedDecrement(StockDecrement decrement, Timestamp now) {
+        return new Object[]{decrement.getQuantity(), now, decrement.getProductId(),
+                decrement.getQuantity() + decrement.getReserved()};
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private List<Product> loadRows(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(String.format(PRODUCT_ROWS_SQL, placeholders), (rs, rowNum) -> {
+            Product product = new Product();
+            product.setId(rs.getLong("id"));
+            product.setName(rs.getString("name"));
+            product.setDescription(rs.getString("description"));
+            product.setPrice(rs.getBigDecimal("price"));
+            product.setStockQuantity(rs.getInt("stock_quantity"));
+            product.setImageUrl(rs.getString("image_url"));
+            product.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            product.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+            product.setVersion(rs.getLong("version"));
+            return product;
+        }, ids.toArray());
+    }
+
+    private Map<Long, Integer> stockSlots(List<Long> ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Integer> slots = new HashMap<>();
+        jdbcTemplate.query(String.format(STOCK_SLOTS_SQL, placeholders), rs -> {
+            slots.put(rs.getLong("id"), rs.getInt("stock_slots"));
+        }, ids.toArray());
+        return slots;
+    }
+
+    private void refreshAfterCommit(Product saved) {
+        if (saved == null || saved.getId() == null) {
+            return;
+        }
+        // Snapshot now: the managed entity may be changed again later in the same transaction.
+        // Only its version is taken after the commit, once the flush has incremented it.
+        ProductSnapshot taken = ProductSnapshot.of(saved);
+        afterCommit(() -> {
+            ProductSnapshot snapshot = taken.withVersion(saved.getVersion());
+            catalogCache.put(snapshot);
+            searchIndex.update(snapshot);
+            suggestIndex.update(snapshot);
+            facetIndex.update(snapshot);
+        });
+    }
+
+    private List<Product> resolve(List<Long> ids) {
+        return catalogCache.getAll(ids, productRepository::findAllById).stream()
+                .map(ProductSnapshot::toProduct)
+                .toList();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a {@link Product} row as held by the {@link ProductCatalogCache}.
+ * Callers that need a mutable entity get a fresh detached copy via {@link #toProduct()}.
+ */
+public final class ProductSnapshot {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final BigDecimal price;
+    private final Integer stockQuantity;
+    private final String imageUrl;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final long version;
+
+    private ProductSnapshot(Product product) {
+        this.id = product.getId();
+        this.name = product.getName();
+        this.description = product.getDescription();
+        this.price = product.getPrice();
+        this.stockQuantity = product.getStockQuantity();
+        this.imageUrl = product.getImageUrl();
+        this.createdAt = product.getCreatedAt();
+        this.updatedAt = product.getUpdatedAt();
+        this.version = product.getVersion();
+    }
+
+    private ProductSnapshot(ProductSnapshot snapshot, long version) {
+        this.id = snapshot.id;
+        this.name = snapshot.name;
+        this.description = snapshot.description;
+        this.price = snapshot.price;
+        this.stockQuantity = snapshot.stockQuantity;
+        this.imageUrl = snapshot.imageUrl;
+        this.createdAt = snapshot.createdAt;
+        this.updatedAt = snapshot.updatedAt;
+        this.version = version;
+    }
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(product);
+    }
+
+    /**
+     * The same row as of another version; the version only moves when the change is flushed.
+     */
+    public ProductSnapshot withVersion(long version) {
+        return version == this.version ? this : new ProductSnapshot(this, version);
+    }
+
+    public Product toProduct() {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setStockQuantity(stockQuantity);
+        product.setImageUrl(imageUrl);
+        product.setCreatedAt(createdAt);
+        product.setUpdatedAt(updatedAt);
+        product.setVersion(version);
+        return product;
+    }
+
+    public boolean isInStock() {
+        return stockQuantity != null && stockQuantity > 0;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
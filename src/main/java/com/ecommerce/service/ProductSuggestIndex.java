@@ -0,0 +1,268 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Prefix trie over product names for the search-box autocomplete. Every word start in a name is
+ * indexed (so "mou" finds "Gaming Mouse"), and each node keeps its own pre-ranked top
+ * {@value #MAX_SUGGESTIONS} entries, newest first, so a lookup is a walk of the prefix with no
+ * subtree scan. Children are kept in sorted parallel arrays rather than maps to stay compact.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Suffixes are only indexed this deep; longer prefixes are matched by filtering the node at this depth.
+    private static final int MAX_DEPTH = 16;
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparing((Entry e) -> e.createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(e -> e.suggestion.getId(), Comparator.reverseOrder());
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private volatile boolean built;
+
+    public List<Suggestion> suggest(String prefix, int limit, Supplier<List<Product>> corpus) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureBuilt(corpus);
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = Math.min(key.length(), MAX_DEPTH);
+            for (int i = 0; i < depth && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+
+            List<Suggestion> result = new ArrayList<>(Math.min(limit, node.top.length));
+            for (Entry entry : node.top) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (key.length() <= MAX_DEPTH || entry.matches(key)) {
+                    result.add(entry.suggestion);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * New names are inserted in place; renames and removals rebuild the trie, since a node's
+     * top list cannot be repaired without rescanning its subtree. Writes that leave the name
+     * and creation time untouched (stock changes, for instance) are ignored. A write that lands
+     * while the trie is being built waits for the build and is applied on top of it.
+     */
+    public void update(ProductSnapshot product) {
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                return;
+            }
+            Entry entry = new Entry(product.getId(), product.getName(), product.getCreatedAt());
+            Entry previous = entries.put(product.getId(), entry);
+            if (previous == null) {
+                insert(root, entry);
+            } else if (!previous.sameAs(entry)) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (built && entries.remove(productId) != null) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            root = new Node();
+            built = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private void ensureBuilt(Supplier<List<Product>> corpus) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                for (Product product : corpus.get()) {
+                    entries.put(product.getId(), new Entry(product.getId(), product.getName(), product.getCreatedAt()));
+                }
+                rebuild();
+                built = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        Node fresh = new Node();
+        for (Entry entry : entries.values()) {
+            insert(fresh, entry);
+        }
+        root = fresh;
+    }
+
+    private static void insert(Node root, Entry entry) {
+        String name = entry.normalized;
+        for (int start = 0; start < name.length(); start++) {
+            if (start > 0 && name.charAt(start - 1) != ' ') {
+                continue;
+            }
+            Node node = root;
+            int end = Math.min(name.length(), start + MAX_DEPTH);
+            for (int i = start; i < end; i++) {
+                node = node.childOrCreate(name.charAt(i));
+                node.offer(entry);
+            }
+        }
+    }
+
+    public static final class Suggestion {
+
+        private final Long id;
+        private final String name;
+
+        Suggestion(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Suggestion suggestion;
+        private final String normalized;
+        private final LocalDateTime createdAt;
+
+        Entry(Long id, String name, LocalDateTime createdAt) {
+            this.suggestion = new Suggestion(id, name);
+            this.normalized = normalize(name);
+            this.createdAt = createdAt;
+        }
+
+        boolean matches(String key) {
+            return normalized.startsWith(key) || normalized.contains(" " + key);
+        }
+
+        boolean sameAs(Entry other) {
+            return Objects.equals(suggestion.getName(), other.suggestion.getName())
+                    && Objects.equals(createdAt, other.createdAt);
+        }
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] top = NO_ENTRIES;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node node = new Node();
+
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = node;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+
+        void offer(Entry entry) {
+            for (Entry existing : top) {
+                if (existing == entry) {
+                    return;
+                }
+            }
+            if (top.length == MAX_SUGGESTIONS && RANKING.compare(entry, top[top.length - 1]) >= 0) {
+                return;
+            }
+            int insertAt = 0;
+            while (insertAt < top.length && RANKING.compare(top[insertAt], entry) < 0) {
+                insertAt++;
+            }
+            int size = Math.min(top.length + 1, MAX_SUGGESTIONS);
+            Entry[] newTop = new Entry[size];
+            System.arraycopy(top, 0, newTop, 0, insertAt);
+            newTop[insertAt] = entry;
+            System.arraycopy(top, insertAt, newTop, insertAt + 1, size - insertAt - 1);
+            top = newTop;
+        }
+    }
+}
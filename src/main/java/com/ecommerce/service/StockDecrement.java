@@ -0,0 +1,36 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+
+/**
+ * One order line's claim on a product's stock: {@code quantity} units taken, as long as at least
+ * {@code reserved} more units stay behind for other shoppers' carts.
+ */
+public final class StockDecrement {
+
+    private final Product product;
+    private final int quantity;
+    private final int reserved;
+
+    public StockDecrement(Product product, int quantity, int reserved) {
+        this.product = product;
+        this.quantity = quantity;
+        this.reserved = reserved;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public Long getProductId() {
+        return product.getId();
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getReserved() {
+        return reserved;
+    }
+}
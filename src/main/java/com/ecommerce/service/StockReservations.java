@@ -0,0 +1,311 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived stock holds taken when a shopper adds to their cart, so that shoppers who filled
+ * their carts first are not beaten to the stock at checkout. Each (user, product) hold lasts
+ * {@code app.cart.reservations.ttl-minutes} from the last add and counts against the product's
+ * available-to-sell, which is its stock minus all live holds.
+ *
+ * <p>Expiry runs on a hashed timing wheel: a hold is filed in the bucket of the tick it
+ * expires in, and a single thread visits one bucket per tick, so expiring costs nothing for
+ * holds that are not yet due and there is no polling of the database. Holds live in memory
+ * only; after a restart carts are simply unreserved until their next change.
+ */
+@Component
+public class StockReservations {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final boolean enabled;
+    private final long ttlTicks;
+    private final long tickNanos;
+    private final LongSupplier clock;
+    private final long startNanos;
+
+    private final Map<Long, ProductHolds> byProduct = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> productsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> checkingOut = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Queue<Hold>[] wheel = new Queue[WHEEL_SIZE];
+    private final Object tickLock = new Object();
+    private long processedTick;
+
+    private final ScheduledExecutorService ticker;
+
+    private final AtomicLong reservations = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+
+    @Autowired
+    public StockReservations(@Value("${app.cart.reservations.enabled:true}") boolean enabled,
+                             @Value("${app.cart.reservations.ttl-minutes:15}") long ttlMinutes,
+                             @Value("${app.cart.reservations.tick-ms:1000}") long tickMillis) {
+        this(enabled, TimeUnit.MINUTES.toMillis(ttlMinutes), tickMillis, System::nanoTime);
+        if (enabled) {
+            ticker.scheduleWithFixedDelay(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    StockReservations(boolean enabled, long ttlMillis, long tickMillis, LongSupplier clock) {
+        this.enabled = enabled;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        // At least two ticks, so a new hold never lands in the bucket being processed.
+        this.ttlTicks = Math.max(2, (ttlMillis + tickMillis - 1) / tickMillis);
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Holds {@code units} more of the product for the user, on top of what they already hold,
+     * and restarts their hold's timer. Returns false, holding nothing, if fewer than
+     * {@code units} of {@code stock} are still available to sell.
+     */
+    public boolean reserve(long userId, long productId, int units, int stock) {
+        if (!enabled || units <= 0) {
+            return true;
+        }
+        ProductHolds holds = byProduct.computeIfAbsent(productId, id -> new ProductHolds());
+        Hold hold;
+        synchronized (holds) {
+            if (stock - holds.reserved < units) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            Hold previous = holds.byUser.get(userId);
+            hold = new Hold(userId, productId, (previous != null ? previous.units : 0) + units, currentTick() + ttlTicks);
+            holds.byUser.put(userId, hold);
+            holds.reserved += units;
+        }
+        productsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(productId);
+        wheel[(int) (hold.deadlineTick & (WHEEL_SIZE - 1))].add(hold);
+        reservations.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Shrinks the user's hold on the product to at most {@code keep} units, keeping its timer.
+     */
+    public void release(long userId, long productId, int keep) {
+        shrink(userId, productId, held -> keep);
+    }
+
+    /**
+     * Takes back {@code units} taken by {@link #reserve} whose cart change did not go through.
+     */
+    public void cancel(long userId, long productId, int units) {
+        shrink(userId, productId, held -> held - units);
+    }
+
+    /**
+     * Drops every hold of the user, e.g. once their order has taken the stock for real.
+     */
+    public void releaseAll(long userId) {
+        Set<Long> productIds = productsByUser.remove(userId);
+        if (productIds != null) {
+            productIds.forEach(productId -> release(userId, productId, 0));
+        }
+    }
+
+    /**
+     * Marks the user's checkout as having taken its stock in a transaction that has not completed
+     * yet. Until {@link #endCheckout}, their holds no longer count against other checkouts, which
+     * would otherwise see the units both taken and held; a batch of orders placed in one
+     * transaction relies on this.
+     */
+    public void beginCheckout(long userId) {
+        checkingOut.merge(userId, 1, Integer::sum);
+    }
+
+    public void endCheckout(long userId) {
+        checkingOut.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Units of the product held by everyone but the given user and shoppers checking out.
+     */
+    public int heldByOthers(long userId, long productId) {
+        ProductHolds holds = byProduct.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            Hold own = holds.byUser.get(userId);
+            int held = holds.reserved - (own != null ? own.units : 0);
+            for (Long other : checkingOut.keySet()) {
+                Hold taken = other != userId ? holds.byUser.get(other) : null;
+                if (taken != null) {
+                    held -= taken.units;
+                }
+            }
+            return held;
+        }
+    }
+
+    public int heldUnits(long productId) {
+        ProductHolds holds = byProduct.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            return holds.reserved;
+        }
+    }
+
+    public int availableToSell(long productId, int stock) {
+        return Math.max(0, stock - heldUnits(productId));
+    }
+
+    /**
+     * Expires the holds of every tick that has passed since the last call.
+     */
+    void advance() {
+        long now = currentTick();
+        synchronized (tickLock) {
+            while (processedTick < now) {
+                processedTick++;
+                expire(wheel[(int) (processedTick & (WHEEL_SIZE - 1))], processedTick);
+            }
+        }
+    }
+
+    private void shrink(long userId, long productId, IntUnaryOperator keepOf) {
+        ProductHolds holds = byProduct.get(productId);
+        if (holds == null) {
+            return;
+        }
+        synchronized (holds) {
+            Hold hold = holds.byUser.get(userId);
+            if (hold == null) {
+                return;
+            }
+            int keep = Math.max(keepOf.applyAsInt(hold.units), 0);
+            if (keep >= hold.units) {
+                return;
+            }
+            holds.reserved -= hold.units - keep;
+            if (keep > 0) {
+                // Same deadline; the old hold's wheel entry is skipped from now on, so file this one too.
+                Hold smaller = new Hold(userId, productId, keep, hold.deadlineTick);
+                holds.byUser.put(userId, smaller);
+                wheel[(int) (smaller.deadlineTick & (WHEEL_SIZE - 1))].add(smaller);
+            } else {
+                holds.byUser.remove(userId);
+            }
+        }
+        releases.incrementAndGet();
+    }
+
+    private void expire(Queue<Hold> bucket, long tick) {
+        // Holds due in a later revolution of the wheel go back into the same bucket.
+        for (int pending = bucket.size(); pending > 0; pending--) {
+            Hold hold = bucket.poll();
+            if (hold == null) {
+                return;
+            }
+            ProductHolds holds = byProduct.get(hold.productId);
+            if (holds == null) {
+                continue;
+            }
+            synchronized (holds) {
+                if (holds.byUser.get(hold.userId) != hold) {
+                    continue; // replaced by a newer hold or already released
+                }
+                if (hold.deadlineTick > tick) {
+                    bucket.add(hold);
+                    continue;
+                }
+                holds.byUser.remove(hold.userId);
+                holds.reserved -= hold.units;
+            }
+            // Best effort: losing a racing add here only means releaseAll misses a hold that
+            // still expires on its own.
+            Set<Long> productIds = productsByUser.get(hold.userId);
+            if (productIds != null && productIds.remove(hold.productId) && productIds.isEmpty()) {
+                productsByUser.remove(hold.userId, productIds);
+            }
+            expirations.incrementAndGet();
+        }
+    }
+
+    private long currentTick() {
+        return (clock.getAsLong() - startNanos) / tickNanos;
+    }
+
+    public Map<String, Object> getStats() {
+        int liveHolds = 0;
+        long heldUnits = 0;
+        for (ProductHolds holds : byProduct.values()) {
+            synchronized (holds) {
+                liveHolds += holds.byUser.size();
+                heldUnits += holds.reserved;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("liveHolds", liveHolds);
+        stats.put("heldUnits", heldUnits);
+        stats.put("reservations", reservations.get());
+        stats.put("rejections", rejections.get());
+        stats.put("expirations", expirations.get());
+        stats.put("releases", releases.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private static final class ProductHolds {
+
+        private final Map<Long, Hold> byUser = new HashMap<>();
+        private int reserved;
+    }
+
+    private static final class Hold {
+
+        private final long userId;
+        private final long productId;
+        private final int units;
+        private final long deadlineTick;
+
+        Hold(long userId, long productId, int units, long deadlineTick) {
+            this.userId = userId;
+            this.productId = productId;
+            this.units = units;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
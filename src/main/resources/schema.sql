@@ -9,9 +9,17 @@
 DROP TABLE IF EXISTS order_items CASCADE;
 DROP TABLE IF EXISTS cart CASCADE;
 DROP TABLE IF EXISTS orders CASCADE;
+DROP TABLE IF EXISTS product_stock_slots CASCADE;
 DROP TABLE IF EXISTS products CASCADE;
 DROP TABLE IF EXISTS users CASCADE;
 
+-- Drop id sequences if they exist
+DROP SEQUENCE IF EXISTS users_id_seq;
+DROP SEQUENCE IF EXISTS products_id_seq;
+DROP SEQUENCE IF EXISTS orders_id_seq;
+DROP SEQUENCE IF EXISTS order_items_id_seq;
+DROP SEQUENCE IF EXISTS cart_id_seq;
+
 -- Drop custom types if they exist
 DROP TYPE IF EXISTS user_role CASCADE;
 DROP TYPE IF EXISTS order_status CASCADE;
@@ -20,9 +28,17 @@ DROP TYPE IF EXISTS order_status CASCADE;
 CREATE TYPE user_role AS ENUM ('USER', 'ADMIN');
 CREATE TYPE order_status AS ENUM ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED');
 
+-- Id sequences. The application takes ids 50 at a time (pooled-lo: each value fetched is the
+-- first of a block of 50), so the increment must stay 50 to match @SequenceGenerator.
+CREATE SEQUENCE users_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE products_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE orders_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE order_items_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE cart_id_seq START WITH 1 INCREMENT BY 50;
+
 -- Users table
 CREATE TABLE users (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT DEFAULT nextval('users_id_seq') PRIMARY KEY,
     username VARCHAR(50) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     email VARCHAR(100) NOT NULL UNIQUE,
@@ -41,13 +57,16 @@ CREATE INDEX idx_users_role ON users(role);
 
 -- Products table
 CREATE TABLE products (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT DEFAULT nextval('products_id_seq') PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     description TEXT,
     price DECIMAL(10, 2) NOT NULL CHECK (price > 0),
     stock_quantity INTEGER NOT NULL CHECK (stock_quantity >= 0),
     image_url VARCHAR(500),
-    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    stock_slots INTEGER NOT NULL DEFAULT 0
 );
 
 -- Create indexes for products table
@@ -55,14 +74,27 @@ CREATE INDEX idx_products_name ON products(name);
 CREATE INDEX idx_products_price ON products(price);
 CREATE INDEX idx_products_stock ON products(stock_quantity);
 CREATE INDEX idx_products_created_at ON products(created_at);
+CREATE INDEX idx_products_updated_at ON products(updated_at);
+
+-- Stock counters of hot products (see HotStockCounters); empty for every other product
+CREATE TABLE product_stock_slots (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    slot INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+
+    CONSTRAINT fk_product_stock_slots_product_id FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+    CONSTRAINT unique_product_slot UNIQUE (product_id, slot)
+);
 
 -- Orders table
 CREATE TABLE orders (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT DEFAULT nextval('orders_id_seq') PRIMARY KEY,
     user_id BIGINT NOT NULL,
     total_amount DECIMAL(10, 2) NOT NULL CHECK (total_amount > 0),
     status order_status NOT NULL DEFAULT 'PENDING',
     order_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
     
     CONSTRAINT fk_orders_user_id FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
@@ -74,7 +106,7 @@ CREATE INDEX idx_orders_order_date ON orders(order_date);
 
 -- Order Items table
 CREATE TABLE order_items (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT DEFAULT nextval('order_items_id_seq') PRIMARY KEY,
     order_id BIGINT NOT NULL,
     product_id BIGINT NOT NULL,
     quantity INTEGER NOT NULL CHECK (quantity > 0),
@@ -90,10 +122,12 @@ CREATE INDEX idx_order_items_product_id ON order_items(product_id);
 
 -- Cart table
 CREATE TABLE cart (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT DEFAULT nextval('cart_id_seq') PRIMARY KEY,
     user_id BIGINT NOT NULL,
     product_id BIGINT NOT NULL,
     quantity INTEGER NOT NULL CHECK (quantity > 0),
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
     
     CONSTRAINT fk_cart_user_id FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT fk_cart_product_id FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
@@ -103,6 +137,7 @@ CREATE TABLE cart (
 -- Create indexes for cart table
 CREATE INDEX idx_cart_user_id ON cart(user_id);
 CREATE INDEX idx_cart_product_id ON cart(product_id);
+CREATE INDEX idx_cart_updated_at ON cart(updated_at);
 
 -- Insert default admin user
 -- Password is 'admin123' (will be encoded by BCrypt in the application)
@@ -130,6 +165,10 @@ INSERT INTO users (username, password, email, role) VALUES
 -- Create additional indexes for better performance
 CREATE INDEX idx_orders_user_date ON orders(user_id, order_date DESC);
 CREATE INDEX idx_products_stock_price ON products(stock_quantity, price);
+
+-- Keyset pagination indexes for the in-stock catalog listings (see ProductRepository)
+CREATE INDEX idx_products_created_id ON products(created_at, id);
+CREATE INDEX idx_products_price_id ON products(price, id);
 CREATE INDEX idx_order_items_order_product ON order_items(order_id, product_id);
 
 -- Views for reporting (optional)
@@ -16,6 +16,9 @@ document.addEventListener('DOMContentLoaded', function() {
     // Initialize product search
     initializeProductSearch();
 
+    // Initialize search box autocomplete
+    initializeSearchSuggestions();
+
     // Initialize cart functionality
     initializeCartFunctionality();
 });
@@ -62,7 +65,8 @@ function initializeTooltips() {
  * Add loading states to form submissions
  */
 function initializeFormSubmissions() {
-    const forms = document.querySelectorAll('form');
+    // Cart quantity forms are sent through the batch cart API instead
+    const forms = document.querySelectorAll('form:not([data-cart-step])');
     forms.forEach(form => {
         form.addEventListener('submit', function(e) {
             const submitBtn = form.querySelector('button[type="submit"]');
@@ -105,6 +109,40 @@ function initializeProductSearch() {
     }
 }
 
+/**
+ * Fill the search box datalist from the autocomplete endpoint as the user types
+ */
+function initializeSearchSuggestions() {
+    const searchInput = document.querySelector('input[data-suggest-url]');
+    const datalist = searchInput ? document.getElementById(searchInput.getAttribute('list')) : null;
+    if (!searchInput || !datalist) {
+        return;
+    }
+
+    let lastQuery = '';
+    searchInput.addEventListener('input', debounce(function() {
+        const query = searchInput.value.trim();
+        if (query.length === 0 || query === lastQuery) {
+            return;
+        }
+        lastQuery = query;
+
+        fetch(`${searchInput.dataset.suggestUrl}?q=${encodeURIComponent(query)}`, {
+            headers: { 'Accept': 'application/json' }
+        })
+            .then(response => response.ok ? response.json() : [])
+            .then(suggestions => {
+                datalist.innerHTML = '';
+                suggestions.forEach(suggestion => {
+                    const option = document.createElement('option');
+                    option.value = suggestion.name;
+                    datalist.appendChild(option);
+                });
+            })
+            .catch(() => { datalist.innerHTML = ''; });
+    }, 150));
+}
+
 /**
  * Search products with AJAX
  */
@@ -144,19 +182,172 @@ function initializeCartFunctionality() {
         }
     });
 
-    // Add to cart buttons
-    const addToCartForms = document.querySelectorAll('form[action*="/cart/add"]');
-    addToCartForms.forEach(form => {
-        form.addEventListener('submit', function(e) {
-            const quantity = form.querySelector('input[name="quantity"]').value;
-            const productName = form.closest('.card').querySelector('.card-title').textContent;
+    initializeCartBatching();
+    initializeCartFragments();
+}
+
+/**
+ * Turn the cart page's +/-/remove forms into local edits that are sent together as one
+ * request to the batch cart API once the user pauses. The server's answer is authoritative:
+ * on any error the page is reloaded to show the real cart.
+ */
+function initializeCartBatching() {
+    const cartBody = document.querySelector('[data-cart-api]');
+    if (!cartBody) {
+        return;
+    }
+
+    const pending = new Map();
+    let inFlight = false;
 
-            // Show success message immediately
-            showNotification(`Added ${quantity} x ${productName} to cart!`, 'success');
+    const send = debounce(function() {
+        if (inFlight) {
+            send();
+            return;
+        }
+        if (pending.size === 0) {
+            return;
+        }
+        const changes = Array.from(pending, ([productId, quantity]) => ({ op: 'set', productId, quantity }));
+        pending.clear();
+        inFlight = true;
+
+        fetch(cartBody.dataset.cartApi, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json', 'Accept': 'application/json' },
+            body: JSON.stringify(changes)
+        })
+            .then(response => response.json().then(body => {
+                if (!response.ok) {
+                    throw new Error(body.error || 'Could not update cart');
+                }
+                return body;
+            }))
+            .then(applyCartSummary)
+            .catch(error => {
+                showNotification(error.message, 'danger');
+                setTimeout(() => window.location.reload(), 1500);
+            })
+            .finally(() => { inFlight = false; });
+    }, 400);
+
+    function applyCartSummary(summary) {
+        summary.lines.forEach(line => {
+            const row = cartBody.querySelector(`[data-product-id="${line.productId}"]`);
+            if (!row) {
+                return;
+            }
+            if (line.quantity === 0) {
+                row.remove();
+            } else if (!pending.has(line.productId)) {
+                row.querySelector('[data-role="quantity"]').value = line.quantity;
+                row.querySelector('[data-role="subtotal"]').textContent = '$' + line.subtotal.toFixed(2);
+            }
+        });
+        if (summary.quantity === 0) {
+            window.location.reload();
+            return;
+        }
+        document.querySelectorAll('[data-role="cart-total"]').forEach(el => {
+            el.textContent = '$' + summary.total.toFixed(2);
+        });
+        document.querySelectorAll('[data-role="cart-badge"]').forEach(el => {
+            el.textContent = summary.quantity;
+        });
+        document.querySelectorAll('[data-role="line-count"]').forEach(el => {
+            el.textContent = cartBody.querySelectorAll('[data-product-id]').length;
+        });
+    }
+
+    cartBody.querySelectorAll('form[data-cart-step]').forEach(form => {
+        form.addEventListener('submit', function(e) {
+            e.preventDefault();
+            const row = form.closest('[data-product-id]');
+            const productId = Number(row.dataset.productId);
+            const input = row.querySelector('[data-role="quantity"]');
+            const step = form.dataset.cartStep;
+            const quantity = step === 'remove' ? 0 : Math.max(0, parseInt(input.value) + parseInt(step));
+
+            input.value = quantity;
+            if (quantity === 0) {
+                row.style.opacity = '0.5';
+            }
+            pending.set(productId, quantity);
+            send();
         });
     });
 }
 
+/**
+ * Send add-to-cart forms, and the cart page's forms when there is no batch cart API behind
+ * them (a guest's cart), with an HX-Request header. The server then answers with just the
+ * changed line and the order summary, which are patched into the page in place of the
+ * redirect and full reload. Without JavaScript the forms still post and redirect as before.
+ */
+function initializeCartFragments() {
+    document.addEventListener('submit', function(e) {
+        const form = e.target;
+        const cartStep = form.matches('form[data-cart-step]') && !form.closest('[data-cart-api]');
+        if (!cartStep && !form.matches('form[action*="/cart/add"]')) {
+            return;
+        }
+        e.preventDefault();
+
+        fetch(form.action, {
+            method: 'POST',
+            headers: { 'HX-Request': 'true' },
+            body: new FormData(form)
+        })
+            .then(response => response.text())
+            .then(html => {
+                const update = new DOMParser().parseFromString(html, 'text/html').querySelector('[data-cart-update]');
+                if (!update) {
+                    throw new Error('Could not update cart');
+                }
+                applyCartUpdate(update);
+            })
+            .catch(error => {
+                showNotification(error.message, 'danger');
+                setTimeout(() => window.location.reload(), 1500);
+            });
+    });
+
+    function applyCartUpdate(update) {
+        const message = update.querySelector('[data-role="message"]');
+        if (message) {
+            showNotification(message.textContent, message.classList.contains('alert-danger') ? 'danger' : 'success');
+        }
+        document.querySelectorAll('[data-role="cart-badge"]').forEach(el => {
+            el.textContent = update.dataset.quantity;
+        });
+
+        const cartLines = document.querySelector('[data-role="cart-lines"]');
+        if (!cartLines) {
+            return;
+        }
+        if (Number(update.dataset.lines) === 0) {
+            // The empty cart is a different page
+            window.location.reload();
+            return;
+        }
+        const row = cartLines.querySelector(`[data-product-id="${update.dataset.line}"]`);
+        const line = update.querySelector('[data-product-id]');
+        if (row && line) {
+            row.replaceWith(line);
+        } else if (row) {
+            row.remove();
+        }
+        const totals = document.querySelector('[data-role="cart-totals"]');
+        const newTotals = update.querySelector('[data-role="cart-totals"]');
+        if (totals && newTotals) {
+            totals.replaceWith(newTotals);
+        }
+        document.querySelectorAll('[data-role="line-count"]').forEach(el => {
+            el.textContent = update.dataset.lines;
+        });
+    }
+}
+
 /**
  * Update cart item quantity
  */
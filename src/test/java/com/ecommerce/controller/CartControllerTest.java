@@ -0,0 +1,123 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.UserService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartControllerTest {
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private GuestCartCookie guestCartCookie = new GuestCartCookie("test-secret");
+
+    @InjectMocks
+    private CartController cartController;
+
+    private MockMvc mockMvc;
+    private Cookie guestCart;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(cartController).build();
+
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(1L, 2);
+        lines.put(2L, 1);
+        guestCart = new Cookie(GuestCartCookie.NAME, guestCartCookie.encode(lines));
+
+        lenient().when(cartService.getGuestCartItems(anyMap())).thenAnswer(invocation -> {
+            Map<Long, Integer> current = invocation.getArgument(0);
+            return current.entrySet().stream().map(entry -> line(entry.getKey(), entry.getValue())).toList();
+        });
+    }
+
+    private static Cart line(Long productId, int quantity) {
+        Product product = new Product();
+        product.setId(productId);
+        product.setName("Product " + productId);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(10);
+        Cart line = new Cart();
+        line.setProduct(product);
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    @Test
+    void testChangeWithoutTheHeaderStillRedirects() throws Exception {
+        mockMvc.perform(post("/cart/increase/1").cookie(guestCart))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/cart"));
+
+        verify(cartService, never()).getGuestCartItems(anyMap());
+    }
+
+    @Test
+    void testFragmentRequestGetsTheChangedLineAndTotals() throws Exception {
+        MvcResult result = mockMvc.perform(post("/cart/increase/1").cookie(guestCart)
+                        .header(CartController.FRAGMENT_HEADER, "true"))
+                .andExpect(status().isOk())
+                .andExpect(view().name(CartController.CART_UPDATE_VIEW))
+                .andExpect(cookie().exists(GuestCartCookie.NAME))
+                .andReturn();
+
+        Map<String, Object> model = result.getModelAndView().getModel();
+        assertEquals(3, ((Cart) model.get("line")).getQuantity());
+        assertEquals(0, new BigDecimal("40.00").compareTo((BigDecimal) model.get("cartTotal")));
+        assertEquals(2, model.get("cartItemCount"));
+        assertEquals(true, model.get("guest"));
+
+        MvcResult removed = mockMvc.perform(post("/cart/remove/2").cookie(guestCart)
+                        .header(CartController.FRAGMENT_HEADER, "true"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertNull(removed.getModelAndView().getModel().get("line"));
+        assertEquals("Item removed from cart!", removed.getModelAndView().getModel().get("success"));
+        assertEquals(1, removed.getModelAndView().getModel().get("cartItemCount"));
+    }
+
+    @Test
+    void testFailedChangeIsABadRequestWithTheUnchangedCart() throws Exception {
+        doThrow(new RuntimeException("Insufficient stock")).when(cartService).checkGuestQuantity(1L, 3);
+
+        MvcResult result = mockMvc.perform(post("/cart/increase/1").cookie(guestCart)
+                        .header(CartController.FRAGMENT_HEADER, "true"))
+                .andExpect(status().isBadRequest())
+                .andExpect(view().name(CartController.CART_UPDATE_VIEW))
+                .andExpect(cookie().doesNotExist(GuestCartCookie.NAME))
+                .andReturn();
+
+        Map<String, Object> model = result.getModelAndView().getModel();
+        assertEquals("Insufficient stock", model.get("error"));
+        assertEquals(2, ((Cart) model.get("line")).getQuantity());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.controller;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestCartCookieTest {
+
+    private final GuestCartCookie cookie = new GuestCartCookie("test-secret");
+
+    private static Map<Long, Integer> lines() {
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(42L, 2);
+        lines.put(7L, 1);
+        lines.put(1_000_000L, 999);
+        return lines;
+    }
+
+    @Test
+    void testRoundTripKeepsOrder() {
+        String value = cookie.encode(lines());
+
+        assertEquals(lines(), cookie.decode(value));
+        assertEquals(List.of(42L, 7L, 1_000_000L), List.copyOf(cookie.decode(value).keySet()));
+        assertTrue(value.length() < 60, value);
+    }
+
+    @Test
+    void testTamperedOrForeignCookieIsAnEmptyCart() {
+        String value = cookie.encode(lines());
+        String tampered = (value.charAt(0) == 'A' ? 'B' : 'A') + value.substring(1);
+
+        assertTrue(cookie.decode(tampered).isEmpty());
+        assertTrue(new GuestCartCookie("other-secret").decode(value).isEmpty());
+        assertTrue(cookie.decode("garbage").isEmpty());
+        assertTrue(cookie.decode("!!.??").isEmpty());
+    }
+
+    @Test
+    void testReadAndWriteThroughHttp() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cookie.write(request, response, lines());
+
+        String header = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertTrue(header.contains("HttpOnly") && header.contains("SameSite=Lax"), header);
+        String value = header.substring(GuestCartCookie.NAME.length() + 1, header.indexOf(';'));
+
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(new Cookie(GuestCartCookie.NAME, value));
+        assertEquals(lines(), cookie.read(next));
+    }
+}
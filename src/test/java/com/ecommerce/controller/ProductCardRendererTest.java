@@ -0,0 +1,101 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.service.ProductImageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCardRendererTest {
+
+    @Mock
+    private ITemplateEngine templateEngine;
+
+    @Spy
+    private ProductImageService productImageService = new ProductImageService("target/test-uploads");
+
+    @InjectMocks
+    private ProductCardRenderer renderer;
+
+    private MockHttpServletRequest request;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+
+        product = new Product();
+        product.setId(1L);
+        product.setName("Laptop");
+        product.setDescription("Gaming laptop");
+        product.setPrice(new BigDecimal("999.99"));
+        product.setStockQuantity(5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void render_ReusesHtmlUntilProductChanges() {
+        when(templateEngine.process(eq("fragments/product-card"), eq(Set.of("card")), any(IContext.class)))
+                .thenReturn("<div>v1</div>", "<div>v2</div>");
+
+        assertEquals("<div>v1</div>", renderer.render("card", product));
+        assertEquals("<div>v1</div>", renderer.render("card", product));
+
+        product.setStockQuantity(4);
+        assertEquals("<div>v2</div>", renderer.render("card", product));
+
+        verify(templateEngine, times(2)).process(anyString(), anySet(), any(IContext.class));
+        Map<String, Object> stats = renderer.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+    }
+
+    @Test
+    void render_KeepsGuestAndBuyerVariantsApart() {
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class)))
+                .thenReturn("<a>Login to Purchase</a>", "<form><input value=\"{{csrf}}\"></form>");
+
+        request.setUserPrincipal(() -> "admin");
+        assertEquals("<a>Login to Purchase</a>", renderer.render("card", product));
+
+        request.setUserPrincipal(null);
+        CsrfToken token = new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "abc<123");
+        request.setAttribute(CsrfToken.class.getName(), token);
+
+        assertEquals("<form><input value=\"abc&lt;123\"></form>", renderer.render("card", product));
+        verify(templateEngine, times(2)).process(anyString(), anySet(), any(IContext.class));
+    }
+
+    @Test
+    void render_UnknownFragment_Throws() {
+        assertThrows(RuntimeException.class, () -> renderer.render("../admin", product));
+        verifyNoInteractions(templateEngine);
+    }
+}
@@ -1,18 +1,28 @@
 package com.ecommerce.controller;
 
 import com.ecommerce.entity.Product;
+import com.ecommerce.service.CatalogQuery;
+import com.ecommerce.service.ProductPage;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.ProductSuggestIndex;
+import com.ecommerce.service.StockReservations;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.ui.Model;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +39,9 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private StockReservations stockReservations;
+
     @Mock
     private Model model;
 
@@ -50,42 +63,62 @@ class ProductControllerTest {
         testProduct.setStockQuantity(100);
     }
 
+    private ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    private ProductPage pageOf(List<Product> products) {
+        return new ProductPage(products, CatalogQuery.Sort.NEWEST, CatalogQuery.DEFAULT_PAGE_SIZE, null, null);
+    }
+
     @Test
     void testHome() throws Exception {
         List<Product> products = Arrays.asList(testProduct);
-        when(productService.findAllInStock()).thenReturn(products);
+        when(productService.findInStockPage(any(CatalogQuery.class))).thenReturn(pageOf(products));
 
         mockMvc.perform(get("/user/home"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("user/home"))
                 .andExpect(model().attributeExists("products"));
 
-        verify(productService, times(1)).findAllInStock();
+        verify(productService, times(1)).findInStockPage(any(CatalogQuery.class));
     }
 
     @Test
     void testHomeDirectCall() {
         List<Product> products = Arrays.asList(testProduct);
-        when(productService.findAllInStock()).thenReturn(products);
+        when(productService.findInStockPage(any(CatalogQuery.class))).thenReturn(pageOf(products));
 
-        String viewName = productController.home(model);
+        String viewName = productController.home(new CatalogQuery(), model, webRequest());
 
         assertEquals("user/home", viewName);
-        verify(productService, times(1)).findAllInStock();
+        verify(productService, times(1)).findInStockPage(any(CatalogQuery.class));
         verify(model, times(1)).addAttribute("products", products);
     }
 
+    @Test
+    void testHomeBindsCursorAndSort() throws Exception {
+        when(productService.findInStockPage(any(CatalogQuery.class))).thenReturn(pageOf(Arrays.asList(testProduct)));
+
+        mockMvc.perform(get("/user/home").param("sort", "PRICE").param("after", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("page"));
+
+        verify(productService).findInStockPage(argThat(query ->
+                query.getSort() == CatalogQuery.Sort.PRICE && "abc".equals(query.getAfter())));
+    }
+
     @Test
     void testListProductsWithoutSearch() throws Exception {
         List<Product> products = Arrays.asList(testProduct);
-        when(productService.findAllInStock()).thenReturn(products);
+        when(productService.findCatalogPage(any(CatalogQuery.class))).thenReturn(pageOf(products));
 
         mockMvc.perform(get("/products"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("user/products"))
                 .andExpect(model().attributeExists("products"));
 
-        verify(productService, times(1)).findAllInStock();
+        verify(productService, times(1)).findCatalogPage(any(CatalogQuery.class));
         verify(productService, never()).searchProducts(anyString());
     }
 
@@ -102,20 +135,20 @@ class ProductControllerTest {
                 .andExpect(model().attribute("searchTerm", searchTerm));
 
         verify(productService, times(1)).searchProducts(searchTerm);
-        verify(productService, never()).findAllInStock();
+        verify(productService, never()).findCatalogPage(any(CatalogQuery.class));
     }
 
     @Test
     void testListProductsWithEmptySearch() throws Exception {
         List<Product> products = Arrays.asList(testProduct);
-        when(productService.findAllInStock()).thenReturn(products);
+        when(productService.findCatalogPage(any(CatalogQuery.class))).thenReturn(pageOf(products));
 
         mockMvc.perform(get("/products").param("search", "   "))
                 .andExpect(status().isOk())
                 .andExpect(view().name("user/products"))
                 .andExpect(model().attributeExists("products"));
 
-        verify(productService, times(1)).findAllInStock();
+        verify(productService, times(1)).findCatalogPage(any(CatalogQuery.class));
         verify(productService, never()).searchProducts(anyString());
     }
 
@@ -125,7 +158,7 @@ class ProductControllerTest {
         List<Product> products = Arrays.asList(testProduct);
         when(productService.searchProducts(searchTerm.trim())).thenReturn(products);
 
-        String viewName = productController.listProducts(searchTerm, model);
+        String viewName = productController.listProducts(searchTerm, new CatalogQuery(), model, webRequest());
 
         assertEquals("user/products", viewName);
         verify(productService, times(1)).searchProducts(searchTerm.trim());
@@ -136,12 +169,12 @@ class ProductControllerTest {
     @Test
     void testListProductsDirectCallWithoutSearch() {
         List<Product> products = Arrays.asList(testProduct);
-        when(productService.findAllInStock()).thenReturn(products);
+        when(productService.findCatalogPage(any(CatalogQuery.class))).thenReturn(pageOf(products));
 
-        String viewName = productController.listProducts(null, model);
+        String viewName = productController.listProducts(null, new CatalogQuery(), model, webRequest());
 
         assertEquals("user/products", viewName);
-        verify(productService, times(1)).findAllInStock();
+        verify(productService, times(1)).findCatalogPage(any(CatalogQuery.class));
         verify(model, times(1)).addAttribute("products", products);
         verify(model, never()).addAttribute(eq("searchTerm"), any());
     }
@@ -173,7 +206,7 @@ class ProductControllerTest {
     void testViewProductDirectCall() {
         when(productService.findById(1L)).thenReturn(Optional.of(testProduct));
 
-        String viewName = productController.viewProduct(1L, model);
+        String viewName = productController.viewProduct(1L, model, webRequest());
 
         assertEquals("user/product-detail", viewName);
         verify(productService, times(1)).findById(1L);
@@ -184,10 +217,92 @@ class ProductControllerTest {
     void testViewProductDirectCallNotFound() {
         when(productService.findById(999L)).thenReturn(Optional.empty());
 
-        String viewName = productController.viewProduct(999L, model);
+        String viewName = productController.viewProduct(999L, model, webRequest());
 
         assertEquals("redirect:/products", viewName);
         verify(productService, times(1)).findById(999L);
         verify(model, never()).addAttribute(eq("product"), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSuggestReturnsJson() throws Exception {
+        ProductSuggestIndex index = new ProductSuggestIndex();
+        when(productService.suggest("test", 8))
+                .thenReturn(index.suggest("test", 8, () -> Arrays.asList(testProduct)));
+
+        mockMvc.perform(get("/api/products/suggest").param("q", "test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("Test Product"));
+    }
+
+    @Test
+    void testListProductsBindsCursorAndSort() throws Exception {
+        when(productService.findCatalogPage(any(CatalogQuery.class))).thenReturn(pageOf(Arrays.asList(testProduct)));
+
+        mockMvc.perform(get("/products").param("sort", "PRICE").param("after", "abc").param("size", "500"))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("page"));
+
+        verify(productService).findCatalogPage(argThat(query ->
+                query.getSort() == CatalogQuery.Sort.PRICE
+                        && "abc".equals(query.getAfter())
+                        && query.getPageSize() == CatalogQuery.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void testViewProductNotModified() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+        when(productService.findLastModified(1L)).thenReturn(Optional.of(updatedAt));
+        when(productService.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        MvcResult first = mockMvc.perform(get("/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        verify(productService, times(1)).findById(1L);
+    }
+
+    @Test
+    void testViewProductModifiedSinceLastFetch() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+        when(productService.findLastModified(1L))
+                .thenReturn(Optional.of(updatedAt))
+                .thenReturn(Optional.of(updatedAt.plusNanos(1_000)));
+        when(productService.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        String etag = mockMvc.perform(get("/products/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(view().name("user/product-detail"));
+
+        verify(productService, times(2)).findById(1L);
+    }
+
+    @Test
+    void testListProductsNotModified() throws Exception {
+        when(productService.getCatalogVersion()).thenReturn("1714564800000000-3");
+        when(productService.findCatalogPage(any(CatalogQuery.class))).thenReturn(pageOf(Arrays.asList(testProduct)));
+
+        String etag = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        when(productService.getCatalogVersion()).thenReturn("1714564800000000-2");
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        verify(productService, times(2)).findCatalogPage(any(CatalogQuery.class));
+    }
+}
@@ -0,0 +1,125 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class CartRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("shopper");
+        user.setPassword("password");
+        user.setEmail("shopper@example.com");
+        entityManager.persist(user);
+
+        product = new Product();
+        product.setName("Laptop");
+        product.setPrice(new BigDecimal("999.99"));
+        product.setStockQuantity(5);
+        entityManager.persist(product);
+        entityManager.flush();
+    }
+
+    private List<Cart> lines() {
+        entityManager.clear();
+        return cartRepository.findByUser(user);
+    }
+
+    @Test
+    void testMergeQuantityInsertsThenIncrements() {
+        assertEquals(1, cartRepository.mergeQuantity(user.getId(), product.getId(), 2));
+        assertEquals(1, cartRepository.mergeQuantity(user.getId(), product.getId(), 3));
+
+        List<Cart> lines = lines();
+        assertEquals(1, lines.size());
+        assertEquals(5, lines.get(0).getQuantity());
+    }
+
+    @Test
+    void testMergeQuantityRespectsStock() {
+        assertEquals(0, cartRepository.mergeQuantity(user.getId(), product.getId(), 6));
+        assertTrue(lines().isEmpty());
+
+        cartRepository.mergeQuantity(user.getId(), product.getId(), 4);
+        assertEquals(0, cartRepository.mergeQuantity(user.getId(), product.getId(), 2));
+        assertEquals(4, lines().get(0).getQuantity());
+    }
+
+    @Test
+    void testMergeQuantityForMissingProduct() {
+        assertEquals(0, cartRepository.mergeQuantity(user.getId(), product.getId() + 1000, 1));
+        assertTrue(lines().isEmpty());
+    }
+
+    @Test
+    void testSummarizeIsExact() {
+        Object[] empty = cartRepository.summarize(user.getId()).get(0);
+        assertEquals(0L, ((Number) empty[0]).longValue());
+
+        cartRepository.mergeQuantity(user.getId(), product.getId(), 3);
+        Object[] row = cartRepository.summarize(user.getId()).get(0);
+
+        assertEquals(3L, ((Number) row[0]).longValue());
+        assertEquals(0, new BigDecimal("2999.97").compareTo(new BigDecimal(row[1].toString())));
+    }
+
+    @Test
+    void testDeleteAbandonedKeepsCartsWithARecentLine() {
+        Product mouse = new Product();
+        mouse.setName("Mouse");
+        mouse.setPrice(new BigDecimal("19.99"));
+        mouse.setStockQuantity(5);
+        entityManager.persist(mouse);
+        User other = new User();
+        other.setUsername("returning");
+        other.setPassword("password");
+        other.setEmail("returning@example.com");
+        entityManager.persist(other);
+        entityManager.flush();
+
+        cartRepository.mergeQuantity(user.getId(), product.getId(), 1);
+        cartRepository.mergeQuantity(other.getId(), product.getId(), 1);
+        cartRepository.mergeQuantity(other.getId(), mouse.getId(), 1);
+        entityManager.getEntityManager().createQuery(
+                        "UPDATE Cart c SET c.updatedAt = :old WHERE c.user = :user OR c.product = :product")
+                .setParameter("old", LocalDateTime.now().minusDays(60))
+                .setParameter("user", user)
+                .setParameter("product", product)
+                .executeUpdate();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+
+        List<Long> stale = cartRepository.findStaleCartUserIds(cutoff, 0L, PageRequest.of(0, 10));
+        assertEquals(List.of(user.getId(), other.getId()), stale);
+        assertEquals(List.of(other.getId()),
+                cartRepository.findStaleCartUserIds(cutoff, user.getId(), PageRequest.of(0, 10)));
+
+        assertEquals(1, cartRepository.deleteAbandoned(stale, cutoff));
+        assertEquals(List.of(other.getId()), cartRepository.findUserIdsWithCart(stale));
+        assertTrue(lines().isEmpty());
+    }
+}
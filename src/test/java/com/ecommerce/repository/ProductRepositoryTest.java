@@ -6,6 +6,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -188,4 +190,66 @@ class ProductRepositoryTest {
         List<Product> all = productRepository.findAll();
         assertEquals(3, all.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testKeysetPaginationByPrice() {
+        Product monitor = new Product();
+        monitor.setName("Monitor");
+        monitor.setPrice(new BigDecimal("79.99"));
+        monitor.setStockQuantity(3);
+        monitor = entityManager.persistAndFlush(monitor);
+
+        List<Product> first = productRepository.findInStockByPrice(Limit.of(2));
+        assertEquals(List.of(product3.getId(), monitor.getId()), first.stream().map(Product::getId).toList());
+
+        List<Product> next = productRepository.findInStockByPriceAfter(monitor.getPrice(), monitor.getId(), Limit.of(2));
+        assertEquals(List.of(product1.getId()), next.stream().map(Product::getId).toList());
+
+        List<Product> previous = productRepository.findInStockByPriceBefore(product1.getPrice(), product1.getId(), Limit.of(2));
+        assertEquals(List.of(monitor.getId(), product3.getId()), previous.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void testKeysetPaginationNewestFirst() {
+        List<Product> first = productRepository.findInStockNewest(Limit.of(1));
+        assertEquals(1, first.size());
+        Product top = first.get(0);
+
+        List<Product> rest = productRepository.findInStockNewestAfter(top.getCreatedAt(), top.getId(), Limit.of(10));
+        assertEquals(1, rest.size());
+        assertNotEquals(top.getId(), rest.get(0).getId());
+        assertTrue(rest.stream().allMatch(Product::isInStock));
+
+        List<Product> back = productRepository.findInStockNewestBefore(rest.get(0).getCreatedAt(), rest.get(0).getId(), Limit.of(10));
+        assertEquals(List.of(top.getId()), back.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void testUpdatedAtLookups() {
+        Product stored = productRepository.findById(product2.getId()).orElseThrow();
+        assertEquals(stored.getCreatedAt(), stored.getUpdatedAt());
+        assertEquals(Optional.of(stored.getUpdatedAt()), productRepository.findUpdatedAtById(product2.getId()));
+        assertTrue(productRepository.findUpdatedAtById(-1L).isEmpty());
+
+        stored.setUpdatedAt(stored.getUpdatedAt().plusDays(1));
+        entityManager.persistAndFlush(stored);
+
+        assertEquals(stored.getUpdatedAt(), productRepository.findLatestUpdatedAt());
+    }
+
+    @Test
+    void testStaleCopyCannotOverwriteANewerVersion() {
+        entityManager.clear();
+        Product stale = productRepository.findById(product1.getId()).orElseThrow();
+        entityManager.detach(stale);
+
+        Product current = productRepository.findById(product1.getId()).orElseThrow();
+        current.reduceStock(3);
+        entityManager.flush();
+        assertEquals(stale.getVersion() + 1, current.getVersion());
+        entityManager.clear();
+
+        stale.setStockQuantity(10);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productRepository.saveAndFlush(stale));
+    }
+}
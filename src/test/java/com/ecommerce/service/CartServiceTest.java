@@ -0,0 +1,190 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartServiceTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private CartStore cartStore;
+
+    @Spy
+    private CartSummaryCache cartSummaries = new CartSummaryCache();
+
+    @Spy
+    private StockReservations reservations = new StockReservations(true, 60_000, 1_000, System::nanoTime);
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(mock(PlatformTransactionManager.class), 3, 0);
+
+    @InjectMocks
+    private CartService cartService;
+
+    private User user;
+    private Product laptop;
+    private Product mouse;
+    private Cart laptopLine;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(7L);
+
+        laptop = product(1L, "Laptop", "999.99", 5);
+        mouse = product(2L, "Mouse", "19.50", 10);
+
+        laptopLine = new Cart();
+        laptopLine.setUser(user);
+        laptopLine.setProduct(laptop);
+        laptopLine.setQuantity(2);
+    }
+
+    private static Product product(Long id, String name, String price, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(new BigDecimal(price));
+        product.setStockQuantity(stock);
+        return product;
+    }
+
+    @Test
+    void testApplyChangesWritesFinalQuantities() {
+        when(productService.findAllById(List.of(1L, 2L))).thenReturn(List.of(laptop, mouse));
+        when(cartRepository.findByUser(user)).thenReturn(List.of(laptopLine));
+        when(cartRepository.summarize(7L)).thenReturn(List.<Object[]>of(new Object[]{2L, new BigDecimal("1999.98")}));
+        cartService.getCartSummary(user);
+
+        List<Cart> lines = cartService.applyChanges(user, List.of(
+                new CartChange(CartChange.Op.ADD, 1L, 1),
+                new CartChange(CartChange.Op.ADD, 2L, 3),
+                new CartChange(CartChange.Op.SET, 1L, 4),
+                new CartChange(CartChange.Op.REMOVE, 2L, null),
+                new CartChange(CartChange.Op.ADD, 2L, 1)));
+
+        assertEquals(List.of(4, 1), lines.stream().map(Cart::getQuantity).toList());
+        assertEquals(4, laptopLine.getQuantity());
+        ArgumentCaptor<Cart> saved = ArgumentCaptor.forClass(Cart.class);
+        verify(cartRepository, times(2)).save(saved.capture());
+        assertEquals(mouse, saved.getAllValues().get(1).getProduct());
+
+        CartSummary summary = cartService.getCartSummary(user);
+        assertEquals(5, summary.getQuantity());
+        assertEquals(new BigDecimal("4019.46"), summary.getTotal());
+        verify(cartRepository, times(1)).summarize(7L);
+    }
+
+    @Test
+    void testApplyChangesChecksStockBeforeWritingAnything() {
+        when(productService.findAllById(List.of(2L, 1L))).thenReturn(List.of(laptop, mouse));
+        when(cartRepository.findByUser(user)).thenReturn(List.of(laptopLine));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.applyChanges(user, List.of(
+                new CartChange(CartChange.Op.SET, 2L, 3),
+                new CartChange(CartChange.Op.ADD, 1L, 4))));
+
+        assertTrue(e.getMessage().contains("Laptop"));
+        verify(cartRepository, never()).save(any());
+        verify(cartRepository, never()).delete(any());
+    }
+
+    @Test
+    void testCartChangeCommittingDuringCartViewQueryIsNotCached() {
+        Cart mouseLine = new Cart();
+        mouseLine.setUser(user);
+        mouseLine.setProduct(mouse);
+        mouseLine.setQuantity(1);
+        when(cartRepository.findCartView(7L)).thenAnswer(invocation -> {
+            // The mouse is added and commits after the query has read the cart.
+            cartSummaries.beginChange(7L);
+            cartSummaries.endChange(7L, true, 1, new BigDecimal("19.50"));
+            return List.<Object[]>of(new Object[]{laptopLine, 2L, "1999.98"});
+        }).thenReturn(List.<Object[]>of(
+                new Object[]{laptopLine, 3L, "2019.48"},
+                new Object[]{mouseLine, 3L, "2019.48"}));
+
+        assertEquals(2, cartService.getCartView(user).getSummary().getQuantity());
+        CartView view = cartService.getCartView(user);
+
+        assertEquals(3, view.getSummary().getQuantity());
+        assertEquals(new BigDecimal("2019.48"), view.getSummary().getTotal());
+    }
+
+    @Test
+    void testApplyChangesRejectsUnknownProduct() {
+        when(productService.findAllById(List.of(99L))).thenReturn(List.of());
+
+        assertThrows(RuntimeException.class, () -> cartService.applyChanges(user,
+                List.of(new CartChange(CartChange.Op.ADD, 99L, 1))));
+        verifyNoInteractions(cartRepository);
+    }
+
+    @Test
+    void testAddIsRefusedWhileOtherCartsHoldTheStock() {
+        when(productService.findById(1L)).thenReturn(Optional.of(laptop));
+        reservations.reserve(8L, 1L, 4, laptop.getStockQuantity());
+
+        assertThrows(RuntimeException.class, () -> cartService.addToCart(user, 1L, 2));
+        verify(cartRepository, never()).upsertQuantity(anyLong(), anyLong(), anyInt());
+        verify(cartRepository, never()).mergeQuantity(anyLong(), anyLong(), anyInt());
+        assertEquals(4, reservations.heldUnits(1L));
+    }
+
+    @Test
+    void testGuestCartMergeSkipsMissingProductsAndCapsAtStock() {
+        when(productService.findAllById(List.of(1L, 2L, 99L))).thenReturn(List.of(laptop, mouse));
+        when(cartRepository.findByUser(user)).thenReturn(List.of(laptopLine));
+        Map<Long, Integer> guestLines = new LinkedHashMap<>();
+        guestLines.put(1L, 6);
+        guestLines.put(2L, 3);
+        guestLines.put(99L, 1);
+
+        List<Cart> lines = cartService.mergeGuestCart(user, guestLines);
+
+        assertEquals(List.of(5, 3), lines.stream().map(Cart::getQuantity).toList());
+        assertEquals(5, laptopLine.getQuantity());
+        assertEquals(3, reservations.heldUnits(1L));
+        verify(cartRepository, times(2)).save(any(Cart.class));
+    }
+
+    @Test
+    void testGuestCartMergeClipsToWhatOtherCartsLeaveFree() {
+        when(productService.findAllById(List.of(1L))).thenReturn(List.of(laptop));
+        when(cartRepository.findByUser(user)).thenReturn(List.of(laptopLine));
+        reservations.reserve(8L, 1L, 3, laptop.getStockQuantity());
+
+        List<Cart> lines = cartService.mergeGuestCart(user, Map.of(1L, 6));
+
+        assertEquals(List.of(4), lines.stream().map(Cart::getQuantity).toList());
+        assertEquals(4, laptopLine.getQuantity());
+        assertEquals(5, reservations.heldUnits(1L));
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartStoreTest {
+
+    private static final String UPSERT = "INSERT INTO cart";
+    private static final String DELETE = "DELETE FROM cart";
+
+    @TempDir
+    Path dataDir;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DatabasePlatform databasePlatform;
+
+    @InjectMocks
+    private CartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        configure(cartStore, 4096);
+        cartStore.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cartStore.shutdown();
+    }
+
+    private void configure(CartStore store, int journalBytes) {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "journalPath", dataDir.resolve("cart.journal").toString());
+        ReflectionTestUtils.setField(store, "journalBytes", journalBytes);
+        ReflectionTestUtils.setField(store, "flushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(store, "idleMinutes", 30L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith(sqlPrefix), rows.capture());
+        return rows.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @Test
+    void testFlushCoalescesChangesPerLine() {
+        for (int i = 0; i < 5; i++) {
+            cartStore.update(1L, 10L, current -> current + 1);
+        }
+        cartStore.update(1L, 11L, current -> 2);
+        cartStore.update(1L, 11L, current -> 0);
+
+        assertEquals(Map.of(10L, 5), cartStore.lines(1L));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        cartStore.flush();
+
+        List<Object[]> upserts = rows(UPSERT);
+        assertEquals(1, upserts.size());
+        assertArrayEquals(new Object[]{1L, 10L, 5}, upserts.get(0));
+        assertArrayEquals(new Object[]{1L, 11L}, rows(DELETE).get(0));
+        assertEquals(1L, cartStore.getStats().get("flushes"));
+    }
+
+    @Test
+    void testRejectedChangeIsNotApplied() {
+        cartStore.update(1L, 10L, current -> 3);
+
+        assertThrows(RuntimeException.class, () -> cartStore.update(1L, 10L, current -> {
+            throw new RuntimeException("Insufficient stock");
+        }));
+
+        assertEquals(3, cartStore.lines(1L).get(10L));
+        assertEquals(1L, cartStore.getStats().get("changes"));
+    }
+
+    @Test
+    void testUnflushedChangesAreReplayedAfterCrash() throws Exception {
+        cartStore.update(1L, 10L, current -> 4);
+        cartStore.update(2L, 20L, current -> 1);
+        cartStore.update(2L, 20L, current -> 0);
+        cartStore.update(1L, 10L, current -> 2);
+
+        // A second store over the same journal, as after a restart without a clean shutdown.
+        CartStore restarted = new CartStore();
+        ReflectionTestUtils.setField(restarted, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(restarted, "databasePlatform", databasePlatform);
+        configure(restarted, 4096);
+        restarted.afterSingletonsInstantiated();
+        try {
+            assertArrayEquals(new Object[]{1L, 10L, 2}, rows(UPSERT).get(0));
+            assertArrayEquals(new Object[]{2L, 20L}, rows(DELETE).get(0));
+            assertEquals(2, restarted.getStats().get("recoveredLines"));
+            assertEquals(CartJournal.HEADER_BYTES, restarted.getStats().get("journalBytesUsed"));
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void testFullJournalFlushesSynchronously() throws Exception {
+        cartStore.shutdown();
+        cartStore = new CartStore();
+        ReflectionTestUtils.setField(cartStore, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(cartStore, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(cartStore, "databasePlatform", databasePlatform);
+        configure(cartStore, CartJournal.HEADER_BYTES + 2 * CartJournal.RECORD_BYTES);
+        cartStore.afterSingletonsInstantiated();
+
+        cartStore.update(1L, 10L, current -> 1);
+        cartStore.update(1L, 11L, current -> 1);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        cartStore.update(1L, 12L, current -> 1);
+
+        assertEquals(2, rows(UPSERT).size());
+        assertEquals(CartJournal.HEADER_BYTES + CartJournal.RECORD_BYTES, cartStore.getStats().get("journalBytesUsed"));
+        assertEquals(3, cartStore.lines(1L).size());
+    }
+}
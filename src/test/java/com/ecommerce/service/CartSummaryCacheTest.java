@@ -0,0 +1,92 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartSummaryCacheTest {
+
+    private final CartSummaryCache cache = new CartSummaryCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CartSummary load(long quantity, String total) {
+        loads.incrementAndGet();
+        return new CartSummary(quantity, new BigDecimal(total), 0);
+    }
+
+    @Test
+    void testCommittedChangesAreAppliedWithoutReloading() {
+        CartSummary first = cache.get(1L, id -> load(2, "39.98"));
+
+        cache.beginChange(1L);
+        cache.endChange(1L, true, 3, new BigDecimal("0.30"));
+        CartSummary second = cache.get(1L, id -> load(0, "0"));
+
+        assertEquals(1, loads.get());
+        assertEquals(5, second.getQuantity());
+        assertEquals(new BigDecimal("40.28"), second.getTotal());
+        assertNotEquals(first.getVersion(), second.getVersion());
+    }
+
+    @Test
+    void testRolledBackChangeLeavesSummaryAlone() {
+        CartSummary first = cache.get(1L, id -> load(1, "10.00"));
+
+        cache.beginChange(1L);
+        cache.endChange(1L, false, 4, new BigDecimal("40.00"));
+
+        assertSame(first, cache.get(1L, id -> load(0, "0")));
+    }
+
+    @Test
+    void testLoadDuringChangeIsNotCached() {
+        cache.beginChange(1L);
+        cache.get(1L, id -> load(1, "10.00"));
+        cache.endChange(1L, true, 1, new BigDecimal("10.00"));
+
+        CartSummary reloaded = cache.get(1L, id -> load(2, "20.00"));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, reloaded.getQuantity());
+    }
+
+    @Test
+    void testSeedAfterAQuietQueryIsCached() {
+        long token = cache.observe(1L);
+        cache.seed(1L, token, load(1, "10.00"));
+
+        assertEquals(1, cache.get(1L, id -> load(0, "0")).getQuantity());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testChangeBetweenQueryAndSeedIsNotCached() {
+        long token = cache.observe(1L);
+        CartSummary queried = load(1, "10.00");
+        cache.beginChange(1L);
+        cache.endChange(1L, true, 1, new BigDecimal("10.00"));
+
+        assertEquals(1, cache.seed(1L, token, queried).getQuantity());
+        CartSummary reloaded = cache.get(1L, id -> load(2, "20.00"));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, reloaded.getQuantity());
+    }
+
+    @Test
+    void testClearCommitsAnEmptySummary() {
+        cache.get(1L, id -> load(3, "30.00"));
+
+        cache.beginChange(1L);
+        cache.endClear(1L, true);
+        CartSummary cleared = cache.get(1L, id -> load(3, "30.00"));
+
+        assertTrue(cleared.isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cleared.getTotal()));
+        assertEquals(1, loads.get());
+    }
+}
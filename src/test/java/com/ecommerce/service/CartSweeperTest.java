@@ -0,0 +1,93 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartSweeperTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CartStore cartStore;
+
+    @Spy
+    private CartSummaryCache cartSummaries;
+
+    @Spy
+    private StockReservations reservations = new StockReservations(true, 60_000, 1000, System::nanoTime);
+
+    @InjectMocks
+    private CartSweeper cartSweeper;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cartSweeper, "abandonedDays", 30L);
+        ReflectionTestUtils.setField(cartSweeper, "chunkSize", 2);
+        ReflectionTestUtils.setField(cartSweeper, "pauseMillis", 0L);
+        ReflectionTestUtils.setField(cartSweeper, "timeoutSeconds", 5);
+    }
+
+    @Test
+    void testSweepWalksUsersInChunksAfterTheLastId() {
+        when(cartRepository.findStaleCartUserIds(any(), eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(cartRepository.findStaleCartUserIds(any(), eq(2L), any(Pageable.class))).thenReturn(List.of(5L));
+        when(cartRepository.deleteAbandoned(anyList(), any())).thenReturn(3, 1);
+        when(cartRepository.findUserIdsWithCart(anyList())).thenReturn(List.of(2L)).thenReturn(List.of());
+
+        assertEquals(2, cartSweeper.sweep());
+
+        verify(cartRepository).deleteAbandoned(eq(List.of(1L, 2L)), any());
+        verify(cartRepository).deleteAbandoned(eq(List.of(5L)), any());
+        verify(cartRepository, times(2)).findStaleCartUserIds(any(), anyLong(), any(Pageable.class));
+        assertEquals(4L, cartSweeper.getStats().get("linesDeleted"));
+        assertEquals(1L, cartSweeper.getStats().get("cartsKept"));
+    }
+
+    @Test
+    void testSweptCartsDropSummaryAndHolds() {
+        cartSummaries.get(1L, id -> new CartSummary(2, new BigDecimal("10.00"), 0));
+        cartSummaries.get(2L, id -> new CartSummary(1, new BigDecimal("5.00"), 0));
+        reservations.reserve(1L, 10L, 2, 5);
+        when(cartRepository.findStaleCartUserIds(any(), eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(cartRepository.findStaleCartUserIds(any(), eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(cartRepository.deleteAbandoned(anyList(), any())).thenReturn(2);
+        when(cartRepository.findUserIdsWithCart(anyList())).thenReturn(List.of(2L));
+
+        cartSweeper.sweep();
+
+        assertTrue(cartSummaries.get(1L, id -> fail("cleared summary should stay cached")).isEmpty());
+        assertEquals(1, cartSummaries.get(2L, id -> fail("kept summary should stay cached")).getQuantity());
+        assertEquals(0, reservations.heldUnits(10L));
+    }
+
+    @Test
+    void testCartsHeldByWriteBehindStoreAreSkipped() {
+        when(cartRepository.findStaleCartUserIds(any(), eq(0L), any(Pageable.class))).thenReturn(List.of(7L));
+        when(cartStore.isResident(7L)).thenReturn(true);
+
+        assertEquals(0, cartSweeper.sweep());
+
+        verify(cartRepository, never()).deleteAbandoned(anyList(), any());
+    }
+}
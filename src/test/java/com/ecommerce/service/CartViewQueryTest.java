@@ -0,0 +1,120 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The cart page's read path against a real database, counting the statements it issues.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CartService.class, CartStore.class, CartSummaryCache.class, StockReservations.class,
+        OptimisticRetry.class, DatabasePlatform.class})
+class CartViewQueryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CartService cartService;
+
+    @MockBean
+    private ProductService productService;
+
+    private User user;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("shopper");
+        user.setPassword("password");
+        user.setEmail("shopper@example.com");
+        entityManager.persist(user);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void addLine(String name, String price, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal(price));
+        product.setStockQuantity(10);
+        entityManager.persist(product);
+        Cart line = new Cart();
+        line.setUser(user);
+        line.setProduct(product);
+        line.setQuantity(quantity);
+        entityManager.persist(line);
+    }
+
+    private void startCounting() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void testCartPageIsOneStatementWhateverTheLineCount() {
+        addLine("Laptop", "999.99", 1);
+        addLine("Mouse", "19.50", 3);
+        addLine("Cable", "4.25", 2);
+        startCounting();
+
+        CartView view = cartService.getCartView(user);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(List.of("Laptop", "Mouse", "Cable"),
+                view.getLines().stream().map(line -> line.getProduct().getName()).toList());
+        assertTrue(view.getLines().stream().allMatch(line -> Hibernate.isInitialized(line.getProduct())));
+        assertEquals(6, view.getSummary().getQuantity());
+        assertEquals(0, new BigDecimal("1066.99").compareTo(view.getSummary().getTotal()));
+
+        // The summary it loaded is cached, so the navbar badge elsewhere needs no query.
+        statistics.clear();
+        assertEquals(6, cartService.getCartSummary(user).getQuantity());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testEmptyCartIsOneStatement() {
+        startCounting();
+
+        CartView view = cartService.getCartView(user);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(view.getLines().isEmpty());
+        assertTrue(view.getSummary().isEmpty());
+    }
+
+    @Test
+    void testCartItemsFetchTheirProducts() {
+        addLine("Laptop", "999.99", 1);
+        addLine("Mouse", "19.50", 3);
+        startCounting();
+
+        List<Cart> lines = cartService.getCartItems(user);
+        lines.forEach(line -> line.getProduct().getName());
+
+        assertEquals(2, lines.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutKeysTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CheckoutKeys keys = new CheckoutKeys(TimeUnit.MINUTES.toMillis(10), nanos::get);
+
+    @AfterEach
+    void tearDown() {
+        keys.shutdown();
+    }
+
+    @Test
+    void testDuplicateGetsTheFirstOrder() {
+        assertNull(keys.claim(1L, "k1"));
+        CompletableFuture<Long> duplicate = keys.claim(1L, "k1");
+        assertNotNull(duplicate);
+        assertFalse(duplicate.isDone(), "the first checkout is still running");
+
+        keys.complete(1L, "k1", 42L);
+
+        assertEquals(42L, keys.await(duplicate));
+        assertEquals(42L, keys.await(keys.claim(1L, "k1")));
+        assertNull(keys.claim(2L, "k1"), "keys are per user");
+        assertEquals(2L, keys.getStats().get("duplicates"));
+    }
+
+    @Test
+    void testFailedCheckoutFreesTheKey() {
+        assertNull(keys.claim(1L, "k1"));
+        CompletableFuture<Long> duplicate = keys.claim(1L, "k1");
+
+        keys.fail(1L, "k1", new RuntimeException("Cart is empty"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> keys.await(duplicate));
+        assertEquals("Cart is empty", e.getMessage());
+        assertNull(keys.claim(1L, "k1"), "the shopper may resubmit");
+    }
+
+    @Test
+    void testKeysExpireOnlyOnceTheirCheckoutIsDone() {
+        keys.claim(1L, "done");
+        keys.complete(1L, "done", 7L);
+        keys.claim(1L, "running");
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        keys.expire();
+
+        assertEquals(1, keys.getStats().get("liveKeys"));
+        assertNull(keys.claim(1L, "done"));
+        assertNotNull(keys.claim(1L, "running"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutPipelineTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private CheckoutKeys checkoutKeys = new CheckoutKeys(TimeUnit.MINUTES.toMillis(10), System::nanoTime);
+
+    @InjectMocks
+    private CheckoutPipeline pipeline;
+
+    private final List<CheckoutPipeline.PendingCheckout> drained = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 3);
+        ReflectionTestUtils.setField(pipeline, "maxBatch", 10);
+        pipeline.open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkoutKeys.shutdown();
+    }
+
+    private User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        return order;
+    }
+
+    private long outcome(User user, String ticket) {
+        return checkoutKeys.await(checkoutKeys.find(user.getId(), ticket));
+    }
+
+    @Test
+    void testQueuedCheckoutsArePlacedInOneTransaction() throws InterruptedException {
+        User alice = user(1L);
+        User bob = user(2L);
+        when(orderService.createOrderFromCart(alice)).thenReturn(order(10L));
+        when(orderService.createOrderFromCart(bob)).thenReturn(order(11L));
+
+        String aliceTicket = pipeline.submit(alice, "a");
+        String bobTicket = pipeline.submit(bob, null);
+        pipeline.placeNext(drained, 0);
+
+        assertEquals(10L, outcome(alice, aliceTicket));
+        assertEquals(11L, outcome(bob, bobTicket));
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
+        assertEquals(2L, pipeline.getStats().get("largestBatch"));
+    }
+
+    @Test
+    void testFailedOrderSplitsTheBatch() throws InterruptedException {
+        User alice = user(1L);
+        User bob = user(2L);
+        when(orderService.createOrderFromCart(alice)).thenReturn(order(10L));
+        when(orderService.createOrderFromCart(bob)).thenThrow(new RuntimeException("Cart is empty"));
+
+        String aliceTicket = pipeline.submit(alice, "a");
+        String bobTicket = pipeline.submit(bob, "b");
+        pipeline.placeNext(drained, 0);
+
+        verify(transactionManager).rollback(any());
+        verify(orderService, times(2)).createOrderFromCart(alice);
+        assertEquals(10L, outcome(alice, aliceTicket));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> outcome(bob, bobTicket));
+        assertEquals("Cart is empty", e.getMessage());
+        assertEquals(1L, pipeline.getStats().get("splitBatches"));
+    }
+
+    @Test
+    void testSameShopperIsNeverTwiceInOneBatch() throws InterruptedException {
+        User alice = user(1L);
+        when(orderService.createOrderFromCart(alice)).thenReturn(order(10L), order(12L));
+
+        String first = pipeline.submit(alice, "first");
+        String second = pipeline.submit(alice, "second");
+        pipeline.placeNext(drained, 0);
+        pipeline.placeNext(drained, 0);
+
+        assertEquals(10L, outcome(alice, first));
+        assertEquals(12L, outcome(alice, second));
+        assertEquals(2L, pipeline.getStats().get("batches"));
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testResubmittedKeyIsQueuedOnceAndFullQueueRejects() {
+        User alice = user(1L);
+
+        assertEquals("k", pipeline.submit(alice, "k"));
+        assertEquals("k", pipeline.submit(alice, "k"));
+        pipeline.submit(user(2L), null);
+        pipeline.submit(user(3L), null);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pipeline.submit(user(4L), "late"));
+        assertEquals("Checkout is busy, please try again in a moment", e.getMessage());
+        assertNull(checkoutKeys.claim(4L, "late"), "a rejected checkout can be submitted again");
+        assertEquals(3, pipeline.getStats().get("queueDepth"));
+    }
+}
@@ -0,0 +1,188 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hot products' split stock against a real database. The tests commit, as the hot product list
+ * only changes once a split or merge has.
+ */
+@DataJpaTest
+@Import({ProductService.class, ProductCatalogCache.class, ProductSearchIndex.class, ProductSuggestIndex.class,
+        ProductFacetIndex.class, CartSummaryCache.class, OptimisticRetry.class, HotStockCounters.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotStockCountersTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private HotStockCounters hotStock;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        hotStock.reload();
+    }
+
+    private Product product(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(stock);
+        return productRepository.save(product);
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+
+    private List<Integer> slots(Product product) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM product_stock_slots WHERE product_id = ? ORDER BY slot",
+                Integer.class, product.getId());
+    }
+
+    private int stock(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStockQuantity();
+    }
+
+    @Test
+    void testSplitSpreadsTheStockAndKeepsTheTotal() {
+        Product phone = product("Phone", 10);
+
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 4));
+
+        assertTrue(hotStock.isHot(phone.getId()));
+        assertEquals(List.of(3, 3, 2, 2), slots(phone));
+        assertEquals(10, stock(phone));
+        assertEquals(4, productRepository.findById(phone.getId()).orElseThrow().getStockSlots());
+    }
+
+    @Test
+    void testCheckoutTakesFromTheSlotsAndTheSumIsPublished() {
+        Product phone = product("Phone", 10);
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 4));
+
+        inTransaction(() -> productService.reduceStock(List.of(new StockDecrement(phone, 2, 0))));
+        // More than any one slot holds, so it is taken from several.
+        inTransaction(() -> productService.reduceStock(List.of(new StockDecrement(phone, 5, 0))));
+
+        assertEquals(3, slots(phone).stream().mapToInt(Integer::intValue).sum());
+        assertEquals(10, stock(phone), "the row is only brought up to date by a rebalance");
+
+        inTransaction(() -> productService.rebalanceHotStock(phone.getId()));
+
+        assertEquals(List.of(1, 1, 1, 0), slots(phone));
+        assertEquals(3, stock(phone));
+        assertEquals(3, productService.findById(phone.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void testShortHotLineRollsBackTheWholeOrder() {
+        Product phone = product("Phone", 4);
+        Product cable = product("Cable", 5);
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 2));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> inTransaction(() ->
+                productService.reduceStock(List.of(new StockDecrement(cable, 1, 0), new StockDecrement(phone, 3, 2)))));
+
+        assertEquals("Insufficient stock for product: Phone", e.getMessage());
+        assertEquals(List.of(2, 2), slots(phone));
+        assertEquals(5, stock(cable));
+    }
+
+    @Test
+    void testCheckoutThatDidNotKnowTheProductWasHotUsesTheSlots() {
+        Product phone = product("Phone", 10);
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 2));
+        // As on another instance that has not reloaded the hot products yet.
+        ((Map<?, ?>) ReflectionTestUtils.getField(hotStock, "hot")).clear();
+
+        inTransaction(() -> productService.reduceStock(List.of(new StockDecrement(phone, 4, 0))));
+
+        assertEquals(6, slots(phone).stream().mapToInt(Integer::intValue).sum());
+        assertEquals(10, stock(phone));
+        assertTrue(hotStock.isHot(phone.getId()));
+    }
+
+    @Test
+    void testSingleProductStockChangesThatDidNotKnowTheProductWasHotUseTheSlots() {
+        Product phone = product("Phone", 10);
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 2));
+        Map<?, ?> hot = (Map<?, ?>) ReflectionTestUtils.getField(hotStock, "hot");
+        hot.clear();
+
+        productService.reduceStock(phone.getId(), 3);
+        hot.clear();
+        productService.addStock(phone.getId(), 2);
+
+        assertEquals(9, slots(phone).stream().mapToInt(Integer::intValue).sum());
+        assertEquals(10, stock(phone), "the row is only brought up to date by a rebalance");
+    }
+
+    @Test
+    void testAdminEditMovesTheSlotsByItsStockChange() {
+        Product phone = product("Phone", 10);
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 2));
+        Product form = productRepository.findById(phone.getId()).orElseThrow();
+        // Sold after the form was loaded; hot takes leave the row's version alone.
+        inTransaction(() -> productService.reduceStock(List.of(new StockDecrement(phone, 4, 0))));
+
+        form.setName("Phone 2");
+        Product saved = inTransaction(() -> productService.updateProduct(form, 10));
+        assertEquals(6, slots(phone).stream().mapToInt(Integer::intValue).sum());
+
+        saved.setStockQuantity(15);
+        inTransaction(() -> productService.updateProduct(saved, 10));
+        assertEquals(11, slots(phone).stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testMergePutsTheStockBackOnTheRow() {
+        Product phone = product("Phone", 10);
+        inTransaction(() -> productService.enableHotStock(phone.getId(), 3));
+        inTransaction(() -> productService.reduceStock(List.of(new StockDecrement(phone, 4, 0))));
+        inTransaction(() -> productService.addStock(phone.getId(), 1));
+
+        inTransaction(() -> productService.disableHotStock(phone.getId()));
+
+        assertFalse(hotStock.isHot(phone.getId()));
+        assertTrue(slots(phone).isEmpty());
+        assertEquals(7, stock(phone));
+        assertEquals(0, productRepository.findById(phone.getId()).orElseThrow().getStockSlots());
+
+        inTransaction(() -> productService.reduceStock(List.of(new StockDecrement(phone, 7, 0))));
+        assertEquals(0, stock(phone));
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OptimisticRetryTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final OptimisticRetry retry = new OptimisticRetry(transactionManager, 3, 0);
+
+    private static ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException("Product", 1L);
+    }
+
+    @Test
+    void testRetriesConflictInAFreshTransaction() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retry.execute("product.reduceStock", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw conflict();
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(2)).rollback(any());
+        Map<?, ?> counters = (Map<?, ?>) retry.getStats().get("product.reduceStock");
+        assertEquals(2L, counters.get("conflicts"));
+        assertEquals(2L, counters.get("retries"));
+        assertEquals(0L, counters.get("exhausted"));
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> retry.run("order.updateStatus", () -> {
+            calls.incrementAndGet();
+            throw conflict();
+        }));
+
+        assertEquals(3, calls.get());
+        assertTrue(e.getMessage().contains("changed by someone else"));
+        assertEquals(1L, ((Map<?, ?>) retry.getStats().get("order.updateStatus")).get("exhausted"));
+    }
+
+    @Test
+    void testOtherFailuresAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(RuntimeException.class, () -> retry.run("cart.updateQuantity", () -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("Insufficient stock");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testJoinsTheCallersTransactionWithoutRetrying() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            assertThrows(ObjectOptimisticLockingFailureException.class, () -> retry.run("product.reduceStock", () -> {
+                calls.incrementAndGet();
+                throw conflict();
+            }));
+            assertEquals(1, calls.get());
+            verifyNoInteractions(transactionManager);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A 20-line checkout against a real database, showing that with sequence ids its inserts go out
+ * as JDBC batches: one statement per table, however many rows.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ecommerce.service.OrderInsertBatchingTest$Inserts",
+        "spring.jpa.properties.hibernate.session.events.auto=com.ecommerce.service.OrderInsertBatchingTest$Batches"})
+@Import({OrderService.class, CartService.class, CartStore.class, CartSummaryCache.class, StockReservations.class,
+        OptimisticRetry.class, DatabasePlatform.class, CheckoutKeys.class, ProductService.class, ProductCatalogCache.class,
+        ProductSearchIndex.class, ProductSuggestIndex.class, ProductFacetIndex.class, HotStockCounters.class})
+class OrderInsertBatchingTest {
+
+    private static final int LINES = 20;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("shopper");
+        user.setPassword("password");
+        user.setEmail("shopper@example.com");
+        entityManager.persist(user);
+        for (int i = 1; i <= LINES; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setPrice(new BigDecimal("9.99"));
+            product.setStockQuantity(5);
+            entityManager.persist(product);
+            Cart line = new Cart();
+            line.setUser(user);
+            line.setProduct(product);
+            line.setQuantity(1);
+            entityManager.persist(line);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Inserts.tables.clear();
+        Batches.executed.set(0);
+    }
+
+    @Test
+    void testCheckoutInsertsAreBatched() {
+        Order order = orderService.createOrderFromCart(user);
+        entityManager.flush();
+
+        assertEquals(LINES, order.getOrderItems().size());
+        assertTrue(order.getOrderItems().stream().allMatch(item -> item.getId() != null));
+        // Without batching every row is its own statement: 21 inserts.
+        assertEquals(List.of("orders", "order_items"), Inserts.tables);
+        assertTrue(Batches.executed.get() >= 2, "inserts executed as JDBC batches");
+        assertEquals(LINES, entityManager.getEntityManager()
+                .createQuery("select count(i) from OrderItem i where i.order.id = :id", Long.class)
+                .setParameter("id", order.getId()).getSingleResult());
+    }
+
+    @Test
+    void testIdsComeFromPooledSequences() {
+        Order first = orderService.createOrderFromCart(user);
+        entityManager.flush();
+
+        List<Long> itemIds = new ArrayList<>();
+        first.getOrderItems().forEach(item -> itemIds.add(item.getId()));
+        // One block of 50 covers all 20 lines, so the ids are consecutive.
+        assertEquals(LINES - 1, itemIds.get(LINES - 1) - itemIds.get(0));
+    }
+
+    /**
+     * Records the table of every INSERT Hibernate prepares; a batch prepares its statement once.
+     */
+    public static class Inserts implements StatementInspector {
+
+        static final List<String> tables = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            // Drop the "/* insert for ... */" comment use_sql_comments puts in front.
+            String lower = sql.replaceFirst("^\\s*/\\*.*?\\*/", "").toLowerCase(Locale.ROOT).trim();
+            if (lower.startsWith("insert into ")) {
+                tables.add(lower.substring("insert into ".length()).split("[\\s(]")[0]);
+            }
+            return sql;
+        }
+    }
+
+    public static class Batches extends BaseSessionEventListener {
+
+        static final AtomicInteger executed = new AtomicInteger();
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            executed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The export reads in its own transaction, so test data has to be committed first.
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ProductExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ProductExportServiceTest {
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Product laptop;
+    private Product desk;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+
+        laptop = new Product();
+        laptop.setName("Laptop");
+        laptop.setDescription("Fast, light");
+        laptop.setPrice(new BigDecimal("999.99"));
+        laptop.setStockQuantity(5);
+
+        desk = new Product();
+        desk.setName("Desk \"Pro\"");
+        desk.setPrice(new BigDecimal("120.00"));
+        desk.setStockQuantity(0);
+        desk.setImageUrl("https://example.com/desk.png");
+
+        productRepository.saveAll(List.of(laptop, desk));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.export(out, ProductFileFormat.CSV);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertEquals("id,name,description,price,stock_quantity,image_url,created_at,updated_at", lines[0]);
+        assertTrue(lines[1].startsWith(laptop.getId() + ",Laptop,\"Fast, light\",999.99,5,,"));
+        assertTrue(lines[2].startsWith(desk.getId() + ",\"Desk \"\"Pro\"\"\",,120.00,0,https://example.com/desk.png,"));
+        assertEquals(2L, exportService.getStats().get("lastRows"));
+    }
+
+    @Test
+    void testExportJsonLines() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(out, ProductFileFormat.JSONL);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(laptop.getId().longValue(), first.get("id").asLong());
+        assertEquals("Fast, light", first.get("description").asText());
+        assertEquals(new BigDecimal("999.99"), first.get("price").decimalValue());
+        assertEquals(5, first.get("stockQuantity").asInt());
+        assertTrue(first.get("imageUrl").isNull());
+        assertEquals(laptop.getCreatedAt().toString(), first.get("createdAt").asText());
+        assertEquals("Desk \"Pro\"", objectMapper.readTree(lines[1]).get("name").asText());
+    }
+}
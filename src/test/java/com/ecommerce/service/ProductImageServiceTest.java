@@ -0,0 +1,135 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private ProductImageService imageService;
+
+    @BeforeEach
+    void setUp() {
+        imageService = new ProductImageService(uploadDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageService.shutdown();
+    }
+
+    private static MockMultipartFile png(int width, int height) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", bytes);
+        return new MockMultipartFile("imageFile", "photo.png", "image/png", bytes.toByteArray());
+    }
+
+    private static ProductImageService.ImageFile awaitExact(ProductImageService service, String key, String file)
+            throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ProductImageService.ImageFile image = service.resolve(key, file);
+            if (image != null && image.isExact()) {
+                return image;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Variant was never generated: " + file);
+    }
+
+    @Test
+    void testStoreGeneratesScaledVariants() throws Exception {
+        String url = imageService.store(png(1200, 600));
+
+        assertTrue(url.startsWith(ProductImageService.URL_PREFIX));
+        assertTrue(url.endsWith("/original.png"));
+        String key = url.substring(ProductImageService.URL_PREFIX.length(), url.lastIndexOf('/'));
+
+        BufferedImage card = ImageIO.read(awaitExact(imageService, key, "card.png").getPath().toFile());
+        assertEquals(480, card.getWidth());
+        assertEquals(240, card.getHeight());
+        BufferedImage thumb = ImageIO.read(awaitExact(imageService, key, "thumb.png").getPath().toFile());
+        assertEquals(160, thumb.getWidth());
+        assertEquals(80, thumb.getHeight());
+        assertEquals("image/png", imageService.resolve(key, "original.png").getContentType());
+    }
+
+    @Test
+    void testMissingVariantFallsBackToOriginal() throws Exception {
+        String key = "0123456789abcdef0123456789abcdef";
+        Files.createDirectories(uploadDir.resolve("products").resolve(key));
+        Files.write(uploadDir.resolve("products").resolve(key).resolve("original.png"), png(10, 10).getBytes());
+
+        ProductImageService.ImageFile image = imageService.resolve(key, "thumb.png");
+
+        assertFalse(image.isExact());
+        assertTrue(image.getPath().endsWith("original.png"));
+        assertNull(imageService.resolve(key, "huge.png"));
+        assertNull(imageService.resolve("../etc", "original.png"));
+        assertNull(imageService.resolve(key, "thumb.exe"));
+    }
+
+    @Test
+    void testRejectsFilesThatAreNotImages() {
+        MockMultipartFile text = new MockMultipartFile("imageFile", "a.png", "image/png", "hello".getBytes());
+        MockMultipartFile pdf = new MockMultipartFile("imageFile", "a.pdf", "application/pdf", "%PDF".getBytes());
+
+        assertEquals("Uploaded file is not a readable image",
+                assertThrows(RuntimeException.class, () -> imageService.store(text)).getMessage());
+        assertThrows(RuntimeException.class, () -> imageService.store(pdf));
+        assertEquals(0L, imageService.getStats().get("uploads"));
+    }
+
+    @Test
+    void testRejectsImagesWhoseContentDoesNotMatchTheDeclaredType() throws Exception {
+        MockMultipartFile disguised = new MockMultipartFile("imageFile", "photo.jpg", "image/jpeg", png(10, 10).getBytes());
+        ByteArrayOutputStream bmp = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "bmp", bmp);
+        MockMultipartFile bitmap = new MockMultipartFile("imageFile", "photo.png", "image/png", bmp.toByteArray());
+
+        assertEquals("Image content does not match its declared type",
+                assertThrows(RuntimeException.class, () -> imageService.store(disguised)).getMessage());
+        assertEquals("Only JPEG, PNG and GIF images can be uploaded",
+                assertThrows(RuntimeException.class, () -> imageService.store(bitmap)).getMessage());
+        assertEquals(0L, imageService.getStats().get("uploads"));
+        try (Stream<Path> stored = Files.list(uploadDir.resolve("products"))) {
+            assertEquals(0, stored.count());
+        }
+    }
+
+    @Test
+    void testDeleteRemovesTheUploadAndItsVariants() throws Exception {
+        String url = imageService.store(png(1200, 600));
+
+        imageService.delete(url);
+        imageService.delete("https://example.com/photo.png");
+        imageService.delete(null);
+
+        try (Stream<Path> stored = Files.list(uploadDir.resolve("products"))) {
+            assertEquals(0, stored.count());
+        }
+    }
+
+    @Test
+    void testVariantUrl() {
+        String original = "/uploads/products/0123456789abcdef0123456789abcdef/original.jpg";
+
+        assertEquals("/uploads/products/0123456789abcdef0123456789abcdef/thumb.jpg", imageService.url(original, "thumb"));
+        assertEquals("/uploads/products/0123456789abcdef0123456789abcdef/card.jpg", imageService.url(original, "card"));
+        assertEquals("https://example.com/a.jpg", imageService.url("https://example.com/a.jpg", "thumb"));
+        assertNull(imageService.url(null, "card"));
+    }
+}
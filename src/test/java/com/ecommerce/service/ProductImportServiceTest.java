@@ -0,0 +1,188 @@
+package com.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    private static final String INSERT = "INSERT INTO products";
+    private static final String UPDATE = "UPDATE products";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ProductService productService;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ProductImportService importService;
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String errorAt(ProductImportResult result, long line) {
+        return result.getErrors().stream()
+                .filter(error -> error.getLine() == line)
+                .map(ProductImportResult.RowError::getMessage)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> capturedRows(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith(sqlPrefix), rows.capture());
+        return rows.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @Test
+    void testImportCsvWithQuotedFieldsAndInvalidRows() throws Exception {
+        String csv = "name,price,stock_quantity,description\r\n"
+                + "Laptop,999.99,5,\"Fast, light\"\r\n"
+                + "\"Desk \"\"Pro\"\"\",120.00,2,\"two\nlines\"\r\n"
+                + ",10.00,1,missing name\r\n"
+                + "Lamp,abc,1,\r\n";
+
+        ProductImportResult result = importService.importProducts(body(csv), ProductFileFormat.CSV);
+
+        assertEquals(4, result.getRowsRead());
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(5L, 6L), result.getErrors().stream().map(ProductImportResult.RowError::getLine).toList());
+        assertEquals("Invalid price: abc", result.getErrors().get(1).getMessage());
+
+        List<Object[]> rows = capturedRows(INSERT);
+        assertEquals("Fast, light", rows.get(0)[1]);
+        assertEquals("Desk \"Pro\"", rows.get(1)[0]);
+        assertEquals("two\nlines", rows.get(1)[1]);
+        assertEquals(new BigDecimal("120.00"), rows.get(1)[2]);
+        verify(productService).reloadCatalog();
+    }
+
+    @Test
+    void testImportJsonLinesUpdatesById() throws Exception {
+        lenient().when(jdbcTemplate.batchUpdate(startsWith(UPDATE), anyList())).thenReturn(new int[]{1, 0});
+        String jsonl = "{\"id\": 7, \"name\": \"Mouse\", \"price\": 19.5, \"stockQuantity\": 3}\n"
+                + "\n"
+                + "{\"id\": 99, \"name\": \"Ghost\", \"price\": 1, \"stock_quantity\": 1}\n"
+                + "{\"name\": \"Cable\", \"price\": 4.25, \"stockQuantity\": 40}\n"
+                + "{not json\n";
+
+        ProductImportResult result = importService.importProducts(body(jsonl), ProductFileFormat.JSONL);
+
+        assertEquals(4, result.getRowsRead());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(2, result.getFailed());
+        assertEquals("Product not found: 99", errorAt(result, 3));
+        assertTrue(errorAt(result, 5).startsWith("Malformed JSON"));
+        assertEquals(7L, capturedRows(UPDATE).get(0)[6]);
+    }
+
+    @Test
+    void testOversizedCsvRowFailsWithoutStoppingTheImport() throws Exception {
+        String csv = "name,price,stock_quantity,description\n"
+                + "Huge,1.00,1,\"" + "x".repeat(ProductImportService.MAX_RECORD_CHARS) + "\n\"\n"
+                + "Lamp,12.00,3,\n";
+
+        ProductImportResult result = importService.importProducts(body(csv), ProductFileFormat.CSV);
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getFailed());
+        assertEquals("Row is longer than " + ProductImportService.MAX_RECORD_CHARS + " characters", errorAt(result, 2));
+        assertEquals("Lamp", capturedRows(INSERT).get(0)[0]);
+    }
+
+    @Test
+    void testOversizedJsonLineFailsWithoutStoppingTheImport() throws Exception {
+        String jsonl = "{\"name\": \"Huge\", \"price\": 1, \"stockQuantity\": 1, \"description\": \""
+                + "x".repeat(ProductImportService.MAX_RECORD_CHARS) + "\"}\n"
+                + "{\"name\": \"Lamp\", \"price\": 12, \"stockQuantity\": 3}\r\n";
+
+        ProductImportResult result = importService.importProducts(body(jsonl), ProductFileFormat.JSONL);
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getFailed());
+        assertEquals("Row is longer than " + ProductImportService.MAX_RECORD_CHARS + " characters", errorAt(result, 1));
+        assertEquals("Lamp", capturedRows(INSERT).get(0)[0]);
+    }
+
+    @Test
+    void testRejectedBatchIsRetriedRowByRow() throws Exception {
+        when(jdbcTemplate.batchUpdate(startsWith(INSERT), anyList()))
+                .thenThrow(new DataIntegrityViolationException("batch"))
+                .thenReturn(new int[]{1})
+                .thenThrow(new DataIntegrityViolationException("value too long"))
+                .thenReturn(new int[]{1});
+        String csv = "name,price,stock_quantity\nA,1.00,1\nB,1.00,1\nC,1.00,1\n";
+
+        ProductImportResult result = importService.importProducts(body(csv), ProductFileFormat.CSV);
+
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getFailed());
+        assertEquals("value too long", errorAt(result, 3));
+    }
+
+    @Test
+    void testWritesInBatches() throws Exception {
+        StringBuilder csv = new StringBuilder("name,price,stock_quantity\n");
+        int rows = ProductImportService.BATCH_SIZE * 2 + 5;
+        for (int i = 0; i < rows; i++) {
+            csv.append("Item ").append(i).append(",1.00,1\n");
+        }
+
+        ProductImportResult result = importService.importProducts(body(csv.toString()), ProductFileFormat.CSV);
+
+        assertEquals(rows, result.getInserted());
+        assertEquals(3, result.getBatches());
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith(INSERT), anyList());
+        assertEquals(Boolean.TRUE, importService.getStats().get("finished"));
+    }
+
+    @Test
+    void testCsvHeaderMustNameRequiredColumns() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> importService.importProducts(body("name,price\nA,1.00\n"), ProductFileFormat.CSV));
+        assertEquals("CSV header is missing column: stockquantity", e.getMessage());
+        verifyNoInteractions(jdbcTemplate, productService);
+    }
+
+    @Test
+    void testFormatFromContentType() {
+        assertEquals(ProductFileFormat.CSV, ProductFileFormat.from("text/csv; charset=UTF-8"));
+        assertEquals(ProductFileFormat.JSONL, ProductFileFormat.from("application/x-ndjson"));
+        assertThrows(RuntimeException.class, () -> ProductFileFormat.from("application/xml"));
+    }
+}
@@ -5,11 +5,21 @@ import com.ecommerce.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +34,30 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Spy
+    private ProductCatalogCache catalogCache = new ProductCatalogCache();
+
+    @Spy
+    private ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    @Spy
+    private ProductSuggestIndex suggestIndex = new ProductSuggestIndex();
+
+    @Spy
+    private ProductFacetIndex facetIndex = new ProductFacetIndex();
+
+    @Spy
+    private CartSummaryCache cartSummaries = new CartSummaryCache();
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(mock(PlatformTransactionManager.class), 3, 0);
+
+    @Mock
+    private HotStockCounters hotStock;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     private ProductService productService;
 
@@ -62,6 +96,35 @@ class ProductServiceTest {
         verify(productRepository, times(1)).save(testProduct);
     }
 
+    @Test
+    void testUpdateProductAppliesStockChangeToSlotsAsDelta() {
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+
+        productService.updateProduct(testProduct, 100);
+        verify(hotStock, never()).adjust(anyLong(), anyInt());
+
+        testProduct.setStockQuantity(120);
+        productService.updateProduct(testProduct, 100);
+        verify(hotStock).adjust(1L, 20);
+    }
+
+    @Test
+    void testOnlyPriceChangesDropCartSummaries() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        productService.findById(1L);
+
+        Product restocked = productService.findById(1L).orElseThrow();
+        restocked.setStockQuantity(50);
+        productService.updateProduct(restocked);
+        verify(cartSummaries, never()).clear();
+
+        Product repriced = productService.findById(1L).orElseThrow();
+        repriced.setPrice(new BigDecimal("17.99"));
+        productService.updateProduct(repriced);
+        verify(cartSummaries, times(1)).clear();
+    }
+
     @Test
     void testFindById() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
@@ -123,26 +186,88 @@ class ProductServiceTest {
     void testSearchProducts() {
         String searchTerm = "test";
         List<Product> products = Arrays.asList(testProduct);
-        when(productRepository.searchProducts(searchTerm)).thenReturn(products);
+        when(productRepository.findAll()).thenReturn(products);
+        when(productRepository.findAllById(anyList())).thenReturn(products);
 
         List<Product> result = productService.searchProducts(searchTerm);
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(productRepository, times(1)).searchProducts(searchTerm);
+        verify(productRepository, times(1)).findAll();
+        verify(productRepository, never()).searchProducts(anyString());
+    }
+
+    @Test
+    void testSearchProductsRequiresAllTermsAndRanksNameHitsFirst() {
+        Product descriptionMatch = new Product();
+        descriptionMatch.setId(2L);
+        descriptionMatch.setName("Cable");
+        descriptionMatch.setDescription("Test cable for any product");
+        descriptionMatch.setPrice(new BigDecimal("5.00"));
+        descriptionMatch.setStockQuantity(10);
+        when(productRepository.findAll()).thenReturn(Arrays.asList(descriptionMatch, testProduct));
+        when(productRepository.findAllById(anyList())).thenReturn(Arrays.asList(descriptionMatch, testProduct));
+
+        List<Product> result = productService.searchProducts("TEST prod");
+
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertTrue(productService.searchProducts("test cable").stream().allMatch(p -> p.getId() == 2L));
+        assertTrue(productService.searchProducts("test missing").isEmpty());
+    }
+
+    @Test
+    void testSearchIndexFollowsProductUpdates() {
+        when(productRepository.findAll()).thenReturn(Arrays.asList(testProduct));
+        productService.searchProducts("test");
+
+        Product renamed = new Product();
+        renamed.setId(1L);
+        renamed.setName("Renamed Widget");
+        renamed.setPrice(new BigDecimal("19.99"));
+        renamed.setStockQuantity(100);
+        when(productRepository.save(any(Product.class))).thenReturn(renamed);
+        productService.updateProduct(renamed);
+
+        assertTrue(productService.searchProducts("test").isEmpty());
+        assertEquals(1, productService.searchProducts("widget").size());
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testSearchIndexKeepsUpdatesCommittedDuringItsBuild() throws InterruptedException {
+        Product renamed = new Product();
+        renamed.setId(1L);
+        renamed.setName("Renamed Widget");
+        renamed.setPrice(new BigDecimal("19.99"));
+        renamed.setStockQuantity(100);
+        Thread[] writer = new Thread[1];
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            writer[0] = startWrite(() -> searchIndex.update(ProductSnapshot.of(renamed)));
+            return Arrays.asList(testProduct);
+        });
+        when(productRepository.findAllById(anyList())).thenReturn(Arrays.asList(renamed));
+
+        productService.searchProducts("test");
+        writer[0].join();
+
+        assertTrue(productService.searchProducts("test").isEmpty());
+        assertEquals(1, productService.searchProducts("widget").size());
     }
 
     @Test
     void testFindByNameContaining() {
         String name = "Test";
         List<Product> products = Arrays.asList(testProduct);
-        when(productRepository.findByNameContainingIgnoreCase(name)).thenReturn(products);
+        when(productRepository.findAll()).thenReturn(products);
+        when(productRepository.findAllById(anyList())).thenReturn(products);
 
         List<Product> result = productService.findByNameContaining(name);
 
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(productRepository, times(1)).findByNameContainingIgnoreCase(name);
+        assertTrue(productService.findByNameContaining("description").isEmpty());
+        verify(productRepository, never()).findByNameContainingIgnoreCase(anyString());
     }
 
     @Test
@@ -218,14 +343,12 @@ class ProductServiceTest {
 
     @Test
     void testReduceStock() {
-        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(jdbcTemplate.update(contains("stock_slots = 0"), any(Object[].class))).thenReturn(1);
 
         productService.reduceStock(1L, 30);
 
-        assertEquals(70, testProduct.getStockQuantity());
-        verify(productRepository, times(1)).findById(1L);
-        verify(productRepository, times(1)).save(testProduct);
+        verify(jdbcTemplate).update(contains("stock_quantity - ?"), eq(30), any(), eq(1L), eq(30));
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
@@ -252,4 +375,390 @@ class ProductServiceTest {
         assertEquals("Product not found", exception.getMessage());
         verify(productRepository, times(1)).findById(999L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testReduceStockOfProductMadeHotElsewhereUsesTheSlots() {
+        ReflectionTestUtils.setField(testProduct, "stockSlots", 4);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(hotStock.take(1L, 30, 0)).thenReturn(HotStockCounters.Take.NOT_SPLIT, HotStockCounters.Take.TAKEN);
+
+        productService.reduceStock(1L, 30);
+
+        verify(hotStock).learn(1L, 4);
+        verify(hotStock, times(2)).take(1L, 30, 0);
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    void testAddStockOfProductMadeHotElsewhereUsesTheSlots() {
+        ReflectionTestUtils.setField(testProduct, "stockSlots", 4);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        when(hotStock.add(1L, 5)).thenReturn(false, true);
+
+        productService.addStock(1L, 5);
+
+        verify(jdbcTemplate).update(contains("stock_slots = 0"), eq(5), any(), eq(1L));
+        verify(hotStock).learn(1L, 4);
+        verify(hotStock, times(2)).add(1L, 5);
+    }
+
+    @Test
+    void testFindByIdServedFromCatalogCache() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        productService.findById(1L);
+        Optional<Product> result = productService.findById(1L);
+
+        assertTrue(result.isPresent());
+        assertEquals("Test Product", result.get().getName());
+        assertNotSame(testProduct, result.get());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testFindAllInStockServedFromCatalogCache() {
+        when(productRepository.findAllInStock()).thenReturn(Arrays.asList(testProduct));
+
+        productService.findAllInStock();
+        List<Product> result = productService.findAllInStock();
+
+        assertEquals(1, result.size());
+        verify(productRepository, times(1)).findAllInStock();
+    }
+
+    @Test
+    void testReduceStockRefreshesCatalogCache() {
+        when(productRepository.findAllInStock()).thenReturn(Arrays.asList(testProduct));
+        when(jdbcTemplate.update(contains("stock_slots = 0"), any(Object[].class))).thenReturn(1);
+        Product soldOut = new Product();
+        soldOut.setId(1L);
+        soldOut.setName("Test Product");
+        soldOut.setPrice(new BigDecimal("19.99"));
+        soldOut.setStockQuantity(0);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Product>>any(), any(Object[].class)))
+                .thenReturn(List.of(soldOut));
+        productService.findAllInStock();
+
+        productService.reduceStock(1L, 100);
+
+        assertTrue(productService.findAllInStock().isEmpty());
+        assertEquals(0, productService.findById(1L).get().getStockQuantity());
+        verify(productRepository, times(1)).findAllInStock();
+    }
+
+    @Test
+    void testDeleteProductEvictsCatalogCache() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        productService.findById(1L);
+
+        productService.deleteProduct(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(productService.findById(1L).isPresent());
+    }
+
+    @Test
+    void testCatalogVersionFollowsWritesWithoutQueries() {
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        String initial = productService.getCatalogVersion();
+        assertEquals(initial, productService.getCatalogVersion());
+
+        productService.updateProduct(testProduct);
+        String updated = productService.getCatalogVersion();
+        assertNotEquals(initial, updated);
+
+        productService.deleteProduct(1L);
+        assertNotEquals(updated, productService.getCatalogVersion());
+        verify(productRepository, never()).findLatestUpdatedAt();
+        verify(productRepository, never()).count();
+    }
+
+    @Test
+    void testProductDeletedDuringInStockLoadIsNotCached() {
+        when(productRepository.findAllInStock()).thenAnswer(invocation -> {
+            // The delete commits while the listing is being read; its evict runs on this thread
+            // here, where in production it would wait for the load to finish.
+            catalogCache.evict(1L);
+            return Arrays.asList(testProduct);
+        });
+        productService.findAllInStock();
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertFalse(productService.findById(1L).isPresent());
+    }
+
+    @Test
+    void testSuggestMatchesWordPrefixesNewestFirst() {
+        Product older = new Product();
+        older.setId(2L);
+        older.setName("Gaming Mouse");
+        older.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Product newer = new Product();
+        newer.setId(3L);
+        newer.setName("Mouse Pad");
+        newer.setCreatedAt(LocalDateTime.of(2024, 6, 1, 0, 0));
+        when(productRepository.findAll()).thenReturn(Arrays.asList(older, newer, testProduct));
+
+        List<ProductSuggestIndex.Suggestion> result = productService.suggest("mou", 5);
+
+        assertEquals(2, result.size());
+        assertEquals("Mouse Pad", result.get(0).getName());
+        assertEquals("Gaming Mouse", result.get(1).getName());
+        assertEquals(1, productService.suggest("gaming m", 5).size());
+        assertEquals(1, productService.suggest("mou", 1).size());
+        assertTrue(productService.suggest("keyboard", 5).isEmpty());
+    }
+
+    @Test
+    void testSuggestFollowsProductWrites() {
+        when(productRepository.findAll()).thenReturn(Arrays.asList(testProduct));
+        productService.suggest("test", 5);
+
+        Product added = new Product();
+        added.setId(2L);
+        added.setName("Tester Kit");
+        added.setPrice(new BigDecimal("9.99"));
+        added.setStockQuantity(5);
+        when(productRepository.save(any(Product.class))).thenReturn(added);
+        productService.createProduct(added);
+
+        assertEquals(2, productService.suggest("test", 5).size());
+
+        productService.deleteProduct(1L);
+
+        List<ProductSuggestIndex.Suggestion> result = productService.suggest("test", 5);
+        assertEquals(1, result.size());
+        assertEquals(2L, result.get(0).getId());
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testSuggestKeepsWritesCommittedDuringItsBuild() throws InterruptedException {
+        Product renamed = new Product();
+        renamed.setId(1L);
+        renamed.setName("Renamed Widget");
+        Product deleted = new Product();
+        deleted.setId(2L);
+        deleted.setName("Tester Kit");
+        Thread[] writers = new Thread[2];
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            writers[0] = startWrite(() -> suggestIndex.update(ProductSnapshot.of(renamed)));
+            writers[1] = startWrite(() -> suggestIndex.remove(2L));
+            return Arrays.asList(testProduct, deleted);
+        });
+
+        productService.suggest("widget", 5);
+        writers[0].join();
+        writers[1].join();
+
+        assertTrue(productService.suggest("test", 5).isEmpty());
+        assertEquals(1, productService.suggest("widget", 5).size());
+    }
+
+    @Test
+    void testFindInStockPageFirstPageHasOnlyNextCursor() {
+        Product second = new Product();
+        second.setId(2L);
+        second.setPrice(new BigDecimal("29.99"));
+        second.setStockQuantity(1);
+        Product third = new Product();
+        third.setId(3L);
+        third.setPrice(new BigDecimal("39.99"));
+        third.setStockQuantity(1);
+        when(productRepository.findInStockByPrice(Limit.of(3))).thenReturn(Arrays.asList(testProduct, second, third));
+
+        CatalogQuery query = new CatalogQuery();
+        query.setSort(CatalogQuery.Sort.PRICE);
+        query.setSize(2);
+        ProductPage page = productService.findInStockPage(query);
+
+        assertEquals(2, page.getItems().size());
+        assertFalse(page.isHasPrevious());
+        assertTrue(page.isHasNext());
+
+        ProductPage.Cursor cursor = ProductPage.decode(page.getNextCursor(), CatalogQuery.Sort.PRICE);
+        assertEquals(new BigDecimal("29.99"), cursor.getPrice());
+        assertEquals(2L, cursor.getId());
+    }
+
+    @Test
+    void testFindInStockPageBackwardsRestoresDisplayOrder() {
+        testProduct.setCreatedAt(LocalDateTime.of(2024, 3, 1, 0, 0));
+        Product newer = new Product();
+        newer.setId(2L);
+        newer.setCreatedAt(LocalDateTime.of(2024, 4, 1, 0, 0));
+        Product anchor = new Product();
+        anchor.setId(3L);
+        anchor.setCreatedAt(LocalDateTime.of(2024, 2, 1, 0, 0));
+        when(productRepository.findInStockNewestBefore(anchor.getCreatedAt(), 3L, Limit.of(3)))
+                .thenReturn(Arrays.asList(testProduct, newer));
+
+        CatalogQuery query = new CatalogQuery();
+        query.setSize(2);
+        query.setBefore(ProductPage.cursorOf(anchor, CatalogQuery.Sort.NEWEST));
+        ProductPage page = productService.findInStockPage(query);
+
+        assertEquals(List.of(2L, 1L), page.getItems().stream().map(Product::getId).toList());
+        assertTrue(page.isHasNext());
+        assertFalse(page.isHasPrevious());
+    }
+
+    @Test
+    void testFindInStockPageIgnoresMalformedCursor() {
+        when(productRepository.findInStockNewest(Limit.of(CatalogQuery.DEFAULT_PAGE_SIZE + 1)))
+                .thenReturn(Arrays.asList(testProduct));
+
+        CatalogQuery query = new CatalogQuery();
+        query.setAfter("not-a-cursor");
+        ProductPage page = productService.findInStockPage(query);
+
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.isHasNext());
+    }
+
+    private Product catalogProduct(long id, String price, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(new BigDecimal(price));
+        product.setStockQuantity(stock);
+        product.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(id));
+        return product;
+    }
+
+    @Test
+    void testFindCatalogPageFiltersAndCountsFacetsInOnePass() {
+        List<Product> catalog = Arrays.asList(
+                catalogProduct(1L, "10.00", 5),
+                catalogProduct(2L, "30.00", 0),
+                catalogProduct(3L, "40.00", 2),
+                catalogProduct(4L, "120.00", 1));
+        when(productRepository.findAll()).thenReturn(catalog);
+        when(productRepository.findAllById(anyList())).thenReturn(catalog);
+
+        CatalogQuery query = new CatalogQuery();
+        query.setSort(CatalogQuery.Sort.PRICE);
+        query.setMinPrice(new BigDecimal("25"));
+        query.setMaxPrice(new BigDecimal("200"));
+        ProductPage page = productService.findCatalogPage(query);
+
+        assertEquals(List.of(3L, 4L), page.getItems().stream().map(Product::getId).toList());
+        FacetResult facets = page.getFacets();
+        assertEquals(2, facets.getTotalMatches());
+        assertEquals(2, facets.getInStockCount());
+        assertEquals(1, facets.getOutOfStockCount());
+        // Price buckets ignore the price filter but honour the stock filter
+        assertEquals(1, facets.getPriceBuckets().get(0).getCount());
+        assertEquals(1, facets.getPriceBuckets().get(1).getCount());
+        assertEquals(0, facets.getPriceBuckets().get(2).getCount());
+        assertEquals(1, facets.getPriceBuckets().get(3).getCount());
+    }
+
+    @Test
+    void testFindCatalogPageIncludesOutOfStockAndPagesWithCursors() {
+        List<Product> catalog = Arrays.asList(
+                catalogProduct(1L, "10.00", 5),
+                catalogProduct(2L, "30.00", 0),
+                catalogProduct(3L, "40.00", 2));
+        when(productRepository.findAll()).thenReturn(catalog);
+        when(productRepository.findAllById(anyList())).thenReturn(catalog);
+
+        CatalogQuery query = new CatalogQuery();
+        query.setInStock(false);
+        query.setSize(2);
+        ProductPage first = productService.findCatalogPage(query);
+        assertEquals(List.of(3L, 2L), first.getItems().stream().map(Product::getId).toList());
+        assertTrue(first.isHasNext());
+
+        query.setAfter(first.getNextCursor());
+        ProductPage second = productService.findCatalogPage(query);
+        assertEquals(List.of(1L), second.getItems().stream().map(Product::getId).toList());
+        assertFalse(second.isHasNext());
+
+        query.setAfter(null);
+        query.setBefore(second.getPreviousCursor());
+        ProductPage back = productService.findCatalogPage(query);
+        assertEquals(List.of(3L, 2L), back.getItems().stream().map(Product::getId).toList());
+        assertFalse(back.isHasPrevious());
+    }
+
+    @Test
+    void testFacetIndexPatchesStockChanges() {
+        Product product = catalogProduct(1L, "10.00", 1);
+        when(productRepository.findAll()).thenReturn(Arrays.asList(product));
+        CatalogQuery query = new CatalogQuery();
+        query.setMaxPrice(new BigDecimal("50"));
+        assertEquals(1, productService.findCatalogPage(query).getFacets().getInStockCount());
+
+        Product sold = catalogProduct(1L, "10.00", 0);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(sold));
+        when(productRepository.save(any(Product.class))).thenReturn(sold);
+        productService.updateStock(1L, 0);
+
+        FacetResult facets = productService.findCatalogPage(query).getFacets();
+        assertEquals(0, facets.getInStockCount());
+        assertEquals(1, facets.getOutOfStockCount());
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testFacetIndexKeepsStockChangesCommittedDuringItsBuild() throws InterruptedException {
+        Product product = catalogProduct(1L, "10.00", 1);
+        Product sold = catalogProduct(1L, "10.00", 0);
+        Thread[] writer = new Thread[1];
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            writer[0] = startWrite(() -> facetIndex.update(ProductSnapshot.of(sold)));
+            return Arrays.asList(product);
+        });
+        CatalogQuery query = new CatalogQuery();
+        query.setMaxPrice(new BigDecimal("50"));
+
+        productService.findCatalogPage(query);
+        writer[0].join();
+
+        FacetResult facets = productService.findCatalogPage(query).getFacets();
+        assertEquals(0, facets.getInStockCount());
+        assertEquals(1, facets.getOutOfStockCount());
+    }
+
+    @Test
+    void testStockChangeMovesUpdatedAt() {
+        LocalDateTime before = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(jdbcTemplate.update(contains("stock_slots = 0"), any(Object[].class))).thenReturn(1);
+        testProduct.setUpdatedAt(LocalDateTime.now());
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Product>>any(), any(Object[].class)))
+                .thenReturn(List.of(testProduct));
+
+        productService.reduceStock(1L, 1);
+
+        ArgumentCaptor<Timestamp> written = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(contains("updated_at = ?"), eq(1), written.capture(), eq(1L), eq(1));
+        assertTrue(written.getValue().toLocalDateTime().isAfter(before));
+        assertEquals(Optional.of(testProduct.getUpdatedAt()), productService.findLastModified(1L));
+        verify(productRepository, never()).findUpdatedAtById(anyLong());
+    }
+
+    @Test
+    void testFindLastModifiedWithoutLoadingProduct() {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(productRepository.findUpdatedAtById(1L)).thenReturn(Optional.of(updatedAt));
+
+        assertEquals(Optional.of(updatedAt), productService.findLastModified(1L));
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    /**
+     * Starts a write on another thread, as a product commit landing during an index build would
+     * be, and returns once it has finished or is blocked on the index's lock.
+     */
+    private static Thread startWrite(Runnable write) throws InterruptedException {
+        Thread thread = new Thread(write);
+        thread.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.BLOCKED
+                && thread.getState() != Thread.State.TERMINATED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checkout's guarded stock decrement against a real database. The tests commit, so that a failed
+ * guard can be seen to roll back the lines that did match.
+ */
+@DataJpaTest
+@Import({ProductService.class, ProductCatalogCache.class, ProductSearchIndex.class, ProductSuggestIndex.class,
+        ProductFacetIndex.class, CartSummaryCache.class, OptimisticRetry.class, HotStockCounters.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockDecrementTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    private Product product(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(stock);
+        return productRepository.save(product);
+    }
+
+    private void reduce(StockDecrement... decrements) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> productService.reduceStock(List.of(decrements)));
+    }
+
+    private Product reload(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow();
+    }
+
+    @Test
+    void testEveryLineIsTakenAndVersioned() {
+        Product laptop = product("Laptop", 5);
+        Product mouse = product("Mouse", 3);
+
+        reduce(new StockDecrement(mouse, 3, 0), new StockDecrement(laptop, 2, 1));
+
+        assertEquals(3, reload(laptop).getStockQuantity());
+        assertEquals(0, reload(mouse).getStockQuantity());
+        assertEquals(laptop.getVersion() + 1, reload(laptop).getVersion());
+        assertEquals(3, productService.findById(laptop.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void testOneShortLineRollsBackTheOthers() {
+        Product laptop = product("Laptop", 5);
+        Product mouse = product("Mouse", 3);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> reduce(new StockDecrement(laptop, 2, 0), new StockDecrement(mouse, 4, 0)));
+
+        assertEquals("Insufficient stock for product: Mouse", e.getMessage());
+        assertEquals(5, reload(laptop).getStockQuantity());
+        assertEquals(3, reload(mouse).getStockQuantity());
+        assertEquals(laptop.getVersion(), reload(laptop).getVersion());
+    }
+
+    @Test
+    void testUnitsReservedForOtherCartsAreNotTaken() {
+        Product laptop = product("Laptop", 5);
+
+        assertThrows(RuntimeException.class, () -> reduce(new StockDecrement(laptop, 3, 3)));
+        assertEquals(5, reload(laptop).getStockQuantity());
+
+        reduce(new StockDecrement(laptop, 2, 3));
+        assertEquals(3, reload(laptop).getStockQuantity());
+    }
+
+    @Test
+    void testRequiresTheCallersTransaction() {
+        Product laptop = product("Laptop", 5);
+
+        assertThrows(RuntimeException.class,
+                () -> productService.reduceStock(List.of(new StockDecrement(laptop, 1, 0))));
+        assertEquals(5, reload(laptop).getStockQuantity());
+    }
+}
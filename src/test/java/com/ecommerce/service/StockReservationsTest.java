@@ -0,0 +1,104 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockReservationsTest {
+
+    private static final long TICK_MILLIS = 1_000;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private StockReservations reservations = reservations(TimeUnit.MINUTES.toMillis(15));
+
+    private StockReservations reservations(long ttlMillis) {
+        return new StockReservations(true, ttlMillis, TICK_MILLIS, nanos::get);
+    }
+
+    private void advanceSeconds(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        reservations.advance();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservations.shutdown();
+    }
+
+    @Test
+    void testHoldsCountAgainstAvailableToSell() {
+        assertTrue(reservations.reserve(1L, 10L, 3, 5));
+        assertTrue(reservations.reserve(2L, 10L, 2, 5));
+
+        assertFalse(reservations.reserve(3L, 10L, 1, 5));
+        assertEquals(0, reservations.availableToSell(10L, 5));
+        assertEquals(2, reservations.heldByOthers(1L, 10L));
+        assertEquals(1L, reservations.getStats().get("rejections"));
+    }
+
+    @Test
+    void testHoldsExpireAfterTtlFromLastAdd() {
+        reservations.reserve(1L, 10L, 2, 5);
+        advanceSeconds(10 * 60);
+        reservations.reserve(1L, 10L, 1, 5);
+
+        advanceSeconds(10 * 60);
+        assertEquals(3, reservations.heldUnits(10L));
+
+        advanceSeconds(5 * 60 + 1);
+        assertEquals(0, reservations.heldUnits(10L));
+        assertEquals(1L, reservations.getStats().get("expirations"));
+        assertTrue(reservations.reserve(2L, 10L, 5, 5));
+    }
+
+    @Test
+    void testHoldLongerThanOneWheelRevolution() {
+        reservations.shutdown();
+        reservations = reservations(TimeUnit.SECONDS.toMillis(1_000));
+        reservations.reserve(1L, 10L, 1, 5);
+
+        advanceSeconds(999);
+        assertEquals(1, reservations.heldUnits(10L));
+
+        advanceSeconds(1);
+        assertEquals(0, reservations.heldUnits(10L));
+    }
+
+    @Test
+    void testReleaseAndCancel() {
+        reservations.reserve(1L, 10L, 4, 10);
+        reservations.reserve(1L, 11L, 2, 10);
+
+        reservations.release(1L, 10L, 3);
+        assertEquals(3, reservations.heldUnits(10L));
+        reservations.cancel(1L, 10L, 1);
+        assertEquals(2, reservations.heldUnits(10L));
+
+        reservations.releaseAll(1L);
+        assertEquals(0, reservations.heldUnits(10L));
+        assertEquals(0, reservations.heldUnits(11L));
+
+        // The released holds' wheel entries are stale and must not expire anything later.
+        reservations.reserve(2L, 10L, 1, 10);
+        advanceSeconds(15 * 60 - 1);
+        assertEquals(1, reservations.heldUnits(10L));
+        assertEquals(0L, reservations.getStats().get("expirations"));
+    }
+
+    @Test
+    void testHoldsOfShoppersCheckingOutDoNotCountAgainstOthers() {
+        reservations.reserve(1L, 10L, 2, 5);
+        reservations.reserve(2L, 10L, 1, 5);
+
+        reservations.beginCheckout(1L);
+        assertEquals(0, reservations.heldByOthers(2L, 10L));
+        assertEquals(1, reservations.heldByOthers(1L, 10L));
+
+        reservations.endCheckout(1L);
+        assertEquals(2, reservations.heldByOthers(2L, 10L));
+    }
+}